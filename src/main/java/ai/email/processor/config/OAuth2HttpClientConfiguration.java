@@ -0,0 +1,39 @@
+package ai.email.processor.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Shared HTTP client for OAuth2 providers.
+ * Backed by the JDK HttpClient, which keeps connections to the token and Graph
+ * endpoints alive between calls. Strict timeouts stop a hung provider from
+ * stalling a poll cycle. Built from Spring Boot's RestTemplateBuilder, so every
+ * request is recorded in the http.client.requests metric by URI, status and outcome.
+ */
+@Configuration
+public class OAuth2HttpClientConfiguration {
+
+    @Value("${app.oauth2.http.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${app.oauth2.http.read-timeout:10s}")
+    private Duration readTimeout;
+
+    @Bean
+    public RestTemplate oauth2RestTemplate(RestTemplateBuilder builder) {
+        HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(connectTimeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return builder.requestFactory(() -> requestFactory).build();
+    }
+}
@@ -1,19 +1,19 @@
 package ai.email.processor.controller;
 
-import ai.email.processor.entity.Conversation;
-import ai.email.processor.entity.EmailAccount;
-import ai.email.processor.entity.Message;
+import ai.email.processor.model.ConversationSummary;
 import ai.email.processor.service.ConversationService;
 import ai.email.processor.service.EmailAccountService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/conversations")
 public class ConversationController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final ConversationService conversationService;
     private final EmailAccountService emailAccountService;
 
@@ -24,23 +24,41 @@ public class ConversationController {
     }
 
     @GetMapping("/account/{accountId}")
-    public ResponseEntity<List<Conversation>> getConversationsByAccount(@PathVariable Long accountId) {
-        return emailAccountService.getAccount(accountId)
-            .map(account -> ResponseEntity.ok(conversationService.getConversationsByAccount(account)))
-            .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> getConversationsByAccount(@PathVariable Long accountId,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "50") int limit) {
+        if (emailAccountService.getAccount(accountId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(conversationService.getConversationSummaries(accountId, cursor, clamp(limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Conversation> getConversation(@PathVariable Long id) {
-        return conversationService.getConversationById(id)
+    public ResponseEntity<ConversationSummary> getConversation(@PathVariable Long id) {
+        return conversationService.getConversationSummary(id)
             .map(ResponseEntity::ok)
             .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{id}/messages")
-    public ResponseEntity<List<Message>> getConversationMessages(@PathVariable Long id) {
-        return conversationService.getConversationById(id)
-            .map(conversation -> ResponseEntity.ok(conversationService.getConversationMessages(conversation)))
-            .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> getConversationMessages(@PathVariable Long id,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "50") int limit) {
+        if (conversationService.getConversationSummary(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(conversationService.getMessageViews(id, cursor, clamp(limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
     }
 }
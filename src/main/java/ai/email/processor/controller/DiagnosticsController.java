@@ -1,7 +1,11 @@
 package ai.email.processor.controller;
 
 import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.mail.ImapStorePool;
+import ai.email.processor.mail.SmtpTransportPool;
+import ai.email.processor.model.PollCycleReport;
 import ai.email.processor.service.EmailAccountService;
+import ai.email.processor.service.EmailReceiverService;
 import jakarta.mail.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,9 +21,18 @@ public class DiagnosticsController {
     private static final Logger logger = LoggerFactory.getLogger(DiagnosticsController.class);
 
     private final EmailAccountService emailAccountService;
-
-    public DiagnosticsController(EmailAccountService emailAccountService) {
+    private final EmailReceiverService emailReceiverService;
+    private final ImapStorePool imapStorePool;
+    private final SmtpTransportPool smtpTransportPool;
+
+    public DiagnosticsController(EmailAccountService emailAccountService,
+                                EmailReceiverService emailReceiverService,
+                                ImapStorePool imapStorePool,
+                                SmtpTransportPool smtpTransportPool) {
         this.emailAccountService = emailAccountService;
+        this.emailReceiverService = emailReceiverService;
+        this.imapStorePool = imapStorePool;
+        this.smtpTransportPool = smtpTransportPool;
     }
 
     @GetMapping("/test-connection/{accountId}")
@@ -58,25 +71,9 @@ public class DiagnosticsController {
         result.put("ssl", account.isUseSSL());
 
         try {
-            Properties props = new Properties();
-            props.put("mail.store.protocol", account.isUseSSL() ? "imaps" : "imap");
-            props.put("mail.imap.host", account.getImapHost());
-            props.put("mail.imap.port", account.getImapPort());
-            props.put("mail.imap.connectiontimeout", "5000");
-            props.put("mail.imap.timeout", "5000");
-
-            if (account.isUseSSL()) {
-                props.put("mail.imap.ssl.enable", "true");
-                props.put("mail.imap.ssl.trust", "*");
-            } else {
-                props.put("mail.imap.starttls.enable", "true");
-            }
-
-            Session session = Session.getInstance(props);
-            Store store = session.getStore();
-
+            // A fresh, unpooled connection using the same session and credentials as polling
             logger.debug("Attempting IMAP connection to {}:{}", account.getImapHost(), account.getImapPort());
-            store.connect(account.getImapHost(), account.getUsername(), account.getPassword());
+            Store store = imapStorePool.connect(account);
 
             if (store.isConnected()) {
                 Folder inbox = store.getFolder("INBOX");
@@ -119,29 +116,9 @@ public class DiagnosticsController {
         result.put("ssl", account.isUseSSL());
 
         try {
-            Properties props = new Properties();
-            props.put("mail.smtp.auth", "true");
-            props.put("mail.smtp.starttls.enable", "true");
-            props.put("mail.smtp.host", account.getSmtpHost());
-            props.put("mail.smtp.port", account.getSmtpPort());
-            props.put("mail.smtp.connectiontimeout", "5000");
-            props.put("mail.smtp.timeout", "5000");
-
-            if (account.isUseSSL()) {
-                props.put("mail.smtp.ssl.enable", "true");
-                props.put("mail.smtp.ssl.trust", "*");
-            }
-
-            Session session = Session.getInstance(props, new Authenticator() {
-                @Override
-                protected PasswordAuthentication getPasswordAuthentication() {
-                    return new PasswordAuthentication(account.getUsername(), account.getPassword());
-                }
-            });
-
+            // A fresh, unpooled connection using the same session and credentials as sending
             logger.debug("Attempting SMTP connection to {}:{}", account.getSmtpHost(), account.getSmtpPort());
-            Transport transport = session.getTransport("smtp");
-            transport.connect(account.getSmtpHost(), account.getUsername(), account.getPassword());
+            Transport transport = smtpTransportPool.connect(account);
 
             if (transport.isConnected()) {
                 result.put("success", true);
@@ -195,4 +172,13 @@ public class DiagnosticsController {
 
         return ResponseEntity.ok(status);
     }
+
+    @GetMapping("/poll-report")
+    public ResponseEntity<PollCycleReport> getLastPollReport() {
+        PollCycleReport report = emailReceiverService.getLastCycleReport();
+        if (report == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(report);
+    }
 }
@@ -6,10 +6,13 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @Controller
 public class WebController {
 
+    private static final int PAGE_SIZE = 50;
+
     private final EmailAccountService emailAccountService;
     private final ConversationService conversationService;
 
@@ -32,22 +35,30 @@ public class WebController {
     }
 
     @GetMapping("/conversations/{accountId}")
-    public String conversations(@PathVariable Long accountId, Model model) {
+    public String conversations(@PathVariable Long accountId, @RequestParam(required = false) String cursor, Model model) {
         return emailAccountService.getAccount(accountId)
             .map(account -> {
+                try {
+                    model.addAttribute("page", conversationService.getConversationSummaries(accountId, cursor, PAGE_SIZE));
+                } catch (IllegalArgumentException e) {
+                    return "redirect:/conversations/" + accountId;
+                }
                 model.addAttribute("account", account);
-                model.addAttribute("conversations", conversationService.getConversationsByAccount(account));
                 return "conversations";
             })
             .orElse("redirect:/accounts");
     }
 
     @GetMapping("/conversation/{id}")
-    public String conversation(@PathVariable Long id, Model model) {
-        return conversationService.getConversationById(id)
+    public String conversation(@PathVariable Long id, @RequestParam(required = false) String cursor, Model model) {
+        return conversationService.getConversationSummary(id)
             .map(conversation -> {
+                try {
+                    model.addAttribute("page", conversationService.getMessageViews(id, cursor, PAGE_SIZE));
+                } catch (IllegalArgumentException e) {
+                    return "redirect:/conversation/" + id;
+                }
                 model.addAttribute("conversation", conversation);
-                model.addAttribute("messages", conversationService.getConversationMessages(conversation));
                 return "conversation";
             })
             .orElse("redirect:/accounts");
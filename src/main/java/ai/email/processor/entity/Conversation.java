@@ -13,7 +13,8 @@ import java.util.List;
 public class Conversation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "conversations_seq")
+    @SequenceGenerator(name = "conversations_seq", sequenceName = "conversations_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -31,6 +32,8 @@ public class Conversation {
     @Column(nullable = false)
     private LocalDateTime lastMessageAt;
 
+    // Read-only view of the thread; new messages are stored through ConversationService
+    // so that appending never loads the whole history
     @OneToMany(mappedBy = "conversation", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("createdAt ASC")
     private List<Message> messages = new ArrayList<>();
@@ -49,13 +52,6 @@ public class Conversation {
         this.participantEmail = participantEmail;
     }
 
-    // Convenience method to add a message
-    public void addMessage(Message message) {
-        messages.add(message);
-        message.setConversation(this);
-        this.lastMessageAt = LocalDateTime.now();
-    }
-
     // Getters and Setters
     public Long getId() {
         return id;
@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 public class EmailAccount {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_accounts_seq")
+    @SequenceGenerator(name = "email_accounts_seq", sequenceName = "email_accounts_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
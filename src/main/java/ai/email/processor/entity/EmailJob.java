@@ -0,0 +1,218 @@
+package ai.email.processor.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A unit of work for one incoming AI request email, persisted so that LLM
+ * generation and reply sending run decoupled from IMAP ingestion and resume
+ * after a restart.
+ */
+@Entity
+@Table(name = "email_jobs")
+public class EmailJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_jobs_seq")
+    @SequenceGenerator(name = "email_jobs_seq", sequenceName = "email_jobs_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "email_account_id", nullable = false)
+    private EmailAccount emailAccount;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "conversation_id", nullable = false)
+    private Conversation conversation;
+
+    @Column(nullable = false)
+    private String senderEmail;
+
+    private String subject;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    private String emailMessageId;
+
+    @Column(columnDefinition = "TEXT")
+    private String response;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobStatus status = JobStatus.INGESTED;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(length = 1024)
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Until when the instance generating the reply owns the job
+    private LocalDateTime leaseExpiresAt;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public EmailJob() {}
+
+    public EmailJob(EmailAccount emailAccount, Conversation conversation, String senderEmail,
+                    String subject, String content, String emailMessageId) {
+        this.emailAccount = emailAccount;
+        this.conversation = conversation;
+        this.senderEmail = senderEmail;
+        this.subject = subject;
+        this.content = content;
+        this.emailMessageId = emailMessageId;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public EmailAccount getEmailAccount() {
+        return emailAccount;
+    }
+
+    public void setEmailAccount(EmailAccount emailAccount) {
+        this.emailAccount = emailAccount;
+    }
+
+    public Conversation getConversation() {
+        return conversation;
+    }
+
+    public void setConversation(Conversation conversation) {
+        this.conversation = conversation;
+    }
+
+    public String getSenderEmail() {
+        return senderEmail;
+    }
+
+    public void setSenderEmail(String senderEmail) {
+        this.senderEmail = senderEmail;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public String getEmailMessageId() {
+        return emailMessageId;
+    }
+
+    public void setEmailMessageId(String emailMessageId) {
+        this.emailMessageId = emailMessageId;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public void setResponse(String response) {
+        this.response = response;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public enum JobStatus {
+        INGESTED,   // User message stored, waiting for generation
+        GENERATING, // LLM call in progress
+        SENDING,    // Reply generated and queued in the outbox
+        DONE,
+        FAILED      // Gave up after max attempts
+    }
+}
@@ -0,0 +1,203 @@
+package ai.email.processor.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Incremental IMAP sync position for one folder of one email account.
+ * Every UID up to lastUid has been processed; UIDs above it that were processed
+ * out of order (because an earlier message failed) are tracked in a bitmap so
+ * the gap can be retried without re-processing anything else.
+ */
+@Entity
+@Table(name = "mailbox_sync_state",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"email_account_id", "folder_name"}))
+public class MailboxSyncState {
+
+    // Bound the bitmap (8 KB) so a message that never succeeds can't grow it forever
+    public static final int MAX_TRACKED_GAP = 65536;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "email_account_id", nullable = false)
+    private Long emailAccountId;
+
+    @Column(nullable = false)
+    private String folderName;
+
+    @Column(nullable = false)
+    private long uidValidity;
+
+    @Column(nullable = false)
+    private long lastUid;
+
+    // Bit i set = UID (lastUid + 1 + i) already processed
+    @Column(length = MAX_TRACKED_GAP / 8)
+    private byte[] processedUids;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public MailboxSyncState() {}
+
+    public MailboxSyncState(Long emailAccountId, String folderName) {
+        this.emailAccountId = emailAccountId;
+        this.folderName = folderName;
+    }
+
+    // Watermark helpers
+
+    /**
+     * Start over from a new baseline, e.g. after the server changed UIDVALIDITY
+     */
+    public void reset(long uidValidity, long lastUid) {
+        this.uidValidity = uidValidity;
+        this.lastUid = lastUid;
+        this.processedUids = null;
+    }
+
+    public boolean isInitialized() {
+        return uidValidity > 0;
+    }
+
+    public boolean isProcessed(long uid) {
+        if (uid <= lastUid) {
+            return true;
+        }
+        long offset = uid - lastUid - 1;
+        return offset < MAX_TRACKED_GAP && bitmap().get((int) offset);
+    }
+
+    /**
+     * Record a processed UID and advance lastUid over any contiguous run of
+     * processed UIDs that follows it
+     * @return the number of UIDs given up on because the gap exceeded MAX_TRACKED_GAP
+     */
+    public long markProcessed(long uid) {
+        if (uid <= lastUid) {
+            return 0;
+        }
+
+        long skipped = 0;
+        long offset = uid - lastUid - 1;
+        BitSet bits = bitmap();
+        if (offset >= MAX_TRACKED_GAP) {
+            // Slide the window forward, abandoning the oldest unprocessed UIDs
+            long shift = offset - MAX_TRACKED_GAP + 1;
+            skipped = shift - bits.get(0, (int) Math.min(shift, MAX_TRACKED_GAP)).cardinality();
+            bits = shift >= MAX_TRACKED_GAP ? new BitSet() : bits.get((int) shift, MAX_TRACKED_GAP);
+            lastUid += shift;
+            offset -= shift;
+        }
+        bits.set((int) offset);
+        advance(bits);
+        return skipped;
+    }
+
+    /**
+     * Record every UID in (lastUid, maxUid] as processed except the given ones.
+     * The server never reuses a UID, so the holes left by expunged messages and
+     * by servers that skip UIDs would otherwise hold lastUid back forever. UIDs
+     * beyond MAX_TRACKED_GAP are left for a later call.
+     */
+    public void markProcessedExcept(long maxUid, Collection<Long> unprocessed) {
+        if (maxUid <= lastUid) {
+            return;
+        }
+        BitSet processed = bitmap();
+        BitSet bits = (BitSet) processed.clone();
+        int span = (int) Math.min(maxUid - lastUid, MAX_TRACKED_GAP);
+        bits.set(0, span);
+        for (long uid : unprocessed) {
+            long offset = uid - lastUid - 1;
+            if (offset >= 0 && offset < span && !processed.get((int) offset)) {
+                bits.clear((int) offset);
+            }
+        }
+        advance(bits);
+    }
+
+    /**
+     * Move lastUid over the contiguous run of processed UIDs at the start of the bitmap
+     */
+    private void advance(BitSet bits) {
+        int contiguous = bits.nextClearBit(0);
+        if (contiguous > 0) {
+            lastUid += contiguous;
+            bits = bits.get(contiguous, Math.max(contiguous, bits.length()));
+        }
+        processedUids = bits.isEmpty() ? null : bits.toByteArray();
+    }
+
+    private BitSet bitmap() {
+        return processedUids == null ? new BitSet() : BitSet.valueOf(processedUids);
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getEmailAccountId() {
+        return emailAccountId;
+    }
+
+    public void setEmailAccountId(Long emailAccountId) {
+        this.emailAccountId = emailAccountId;
+    }
+
+    public String getFolderName() {
+        return folderName;
+    }
+
+    public void setFolderName(String folderName) {
+        this.folderName = folderName;
+    }
+
+    public long getUidValidity() {
+        return uidValidity;
+    }
+
+    public void setUidValidity(long uidValidity) {
+        this.uidValidity = uidValidity;
+    }
+
+    public long getLastUid() {
+        return lastUid;
+    }
+
+    public void setLastUid(long lastUid) {
+        this.lastUid = lastUid;
+    }
+
+    public byte[] getProcessedUids() {
+        return processedUids;
+    }
+
+    public void setProcessedUids(byte[] processedUids) {
+        this.processedUids = processedUids;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,118 @@
+package ai.email.processor.llm;
+
+import ai.email.processor.entity.Conversation;
+import ai.email.processor.entity.Message;
+import ai.email.processor.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Picks the conversation history that goes into a prompt.
+ * Walks the thread newest-first, a page at a time, and keeps turns until the
+ * estimated token budget is spent, so prompt size stays flat however long the
+ * correspondence runs.
+ */
+@Component
+public class ConversationContextBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationContextBuilder.class);
+
+    // Rough estimate that holds for English text with Llama-style tokenizers
+    private static final int CHARS_PER_TOKEN = 4;
+    // Role label and separators added around each message
+    private static final int TOKENS_PER_MESSAGE = 4;
+    private static final int PAGE_SIZE = 20;
+
+    private final MessageRepository messageRepository;
+
+    @Value("${ai.email.chat.llm.context.token-budget:3000}")
+    private int defaultBudget;
+
+    // Per-model budgets as model:tokens pairs, e.g. "llama3.2:6000,mistral:12000"
+    @Value("${ai.email.chat.llm.context.model-budgets:}")
+    private String modelBudgetsSpec;
+
+    // Per-account budgets as accountId:tokens pairs; these win over the model budget
+    @Value("${ai.email.chat.llm.context.account-budgets:}")
+    private String accountBudgetsSpec;
+
+    @Value("${spring.ai.ollama.chat.options.model:${ollama.model:llama3.2}}")
+    private String model;
+
+    private Map<String, Integer> modelBudgets;
+    private Map<String, Integer> accountBudgets;
+
+    public ConversationContextBuilder(MessageRepository messageRepository) {
+        this.messageRepository = messageRepository;
+    }
+
+    public record ConversationContext(List<Message> history, int estimatedTokens, boolean truncated) {
+    }
+
+    @PostConstruct
+    void init() {
+        modelBudgets = KeyValueSpec.parse(modelBudgetsSpec, "ai.email.chat.llm.context.model-budgets");
+        accountBudgets = KeyValueSpec.parse(accountBudgetsSpec, "ai.email.chat.llm.context.account-budgets");
+    }
+
+    /**
+     * Newest messages of the conversation, oldest first, that fit in the budget
+     * left after the user's current message. When that message is already stored
+     * as the newest row it is kept without being charged a second time.
+     */
+    public ConversationContext build(Conversation conversation, String userMessage) {
+        int budget = budgetFor(conversation.getEmailAccount().getId()) - estimateTokens(userMessage);
+        List<Message> kept = new ArrayList<>();
+        int used = 0;
+        boolean truncated = false;
+
+        for (int page = 0; !truncated; page++) {
+            List<Message> batch = messageRepository.findByConversationOrderByCreatedAtDesc(
+                conversation, PageRequest.of(page, PAGE_SIZE));
+            for (Message message : batch) {
+                boolean answering = kept.isEmpty() && message.getRole() == Message.MessageRole.USER
+                    && Objects.equals(message.getContent(), userMessage);
+                int tokens = answering ? 0 : estimateTokens(message.getContent());
+                if (used + tokens > budget) {
+                    truncated = true;
+                    break;
+                }
+                kept.add(message);
+                used += tokens;
+            }
+            if (batch.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+
+        Collections.reverse(kept);
+        if (truncated) {
+            logger.debug("Conversation {} trimmed to the newest {} messages (~{} tokens)",
+                conversation.getId(), kept.size(), used);
+        }
+        return new ConversationContext(kept, used, truncated);
+    }
+
+    int budgetFor(Long accountId) {
+        Integer accountBudget = accountBudgets.get(String.valueOf(accountId));
+        if (accountBudget != null) {
+            return accountBudget;
+        }
+        return modelBudgets.getOrDefault(model, defaultBudget);
+    }
+
+    static int estimateTokens(String text) {
+        int length = text == null ? 0 : text.length();
+        return (length + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN + TOKENS_PER_MESSAGE;
+    }
+}
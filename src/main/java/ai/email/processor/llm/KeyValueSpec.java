@@ -0,0 +1,29 @@
+package ai.email.processor.llm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses settings written as comma-separated key:value pairs, e.g. "1:3,7:2".
+ * The value is taken after the last colon, so keys like model tags "llama3.2:3b" work.
+ */
+final class KeyValueSpec {
+
+    private KeyValueSpec() {
+    }
+
+    static Map<String, Integer> parse(String spec, String property) {
+        Map<String, Integer> values = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return values;
+        }
+        for (String entry : spec.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            if (separator <= 0 || separator == entry.length() - 1) {
+                throw new IllegalArgumentException("Invalid " + property + " entry '" + entry + "', expected key:value");
+            }
+            values.put(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator + 1).trim()));
+        }
+        return values;
+    }
+}
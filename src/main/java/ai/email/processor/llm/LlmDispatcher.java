@@ -0,0 +1,181 @@
+package ai.email.processor.llm;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of the Ollama chat model.
+ * At most max-in-flight calls run at once, matching the server's parallel slots;
+ * everything else waits in a queue ordered by priority lane and then by weighted
+ * fair queuing across email accounts, so one busy account can't starve the rest.
+ */
+@Component
+public class LlmDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmDispatcher.class);
+
+    public enum Priority {
+        INTERACTIVE, // Served before anything else
+        NORMAL,
+        BULK         // Retries and backfills
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ai.email.chat.llm.max-in-flight:2}")
+    private int maxInFlight;
+
+    // Comma-separated accountId:weight pairs, e.g. "1:3,7:2". Unlisted accounts get weight 1.
+    @Value("${ai.email.chat.llm.account-weights:}")
+    private String accountWeightsSpec;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Ticket> queue = new PriorityQueue<>(
+        Comparator.comparing(Ticket::priority)
+            .thenComparingDouble(Ticket::finishTag)
+            .thenComparingLong(Ticket::sequence));
+    private final Map<Long, Double> lastFinishTags = new HashMap<>();
+    private final Map<Long, Integer> accountWeights = new HashMap<>();
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+    private double virtualTime;
+    private long sequence;
+    private int inFlight;
+
+    public LlmDispatcher(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        parseAccountWeights();
+
+        Gauge.builder("llm.dispatch.in.flight", this, LlmDispatcher::inFlight)
+            .description("LLM calls currently running")
+            .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            Gauge.builder("llm.dispatch.queue.depth", this, dispatcher -> dispatcher.queueDepth(priority))
+                .description("LLM calls waiting for a slot")
+                .tag("lane", priority.name().toLowerCase())
+                .register(meterRegistry);
+            waitTimers.put(priority, Timer.builder("llm.dispatch.wait")
+                .description("Time spent waiting for an LLM slot")
+                .tag("lane", priority.name().toLowerCase())
+                .register(meterRegistry));
+        }
+        logger.info("LLM dispatcher admitting {} concurrent call(s)", maxInFlight);
+    }
+
+    /**
+     * Run the call once a slot is available, blocking the caller until then
+     */
+    public <T> T execute(Long accountId, Priority priority, Supplier<T> call) {
+        Ticket ticket = enqueue(accountId, priority);
+        try {
+            ticket.admitted().await();
+        } catch (InterruptedException e) {
+            cancel(ticket);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an LLM slot", e);
+        }
+        waitTimers.get(priority).record(System.nanoTime() - ticket.enqueuedAt(), TimeUnit.NANOSECONDS);
+
+        try {
+            return call.get();
+        } finally {
+            release();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queueDepth(Priority priority) {
+        lock.lock();
+        try {
+            return (int) queue.stream().filter(ticket -> ticket.priority() == priority).count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Ticket enqueue(Long accountId, Priority priority) {
+        lock.lock();
+        try {
+            // Weighted fair queuing: each account's calls are spaced 1/weight apart in
+            // virtual time, so heavier accounts get proportionally more turns
+            double startTag = Math.max(virtualTime, lastFinishTags.getOrDefault(accountId, 0.0));
+            double finishTag = startTag + 1.0 / accountWeights.getOrDefault(accountId, 1);
+            lastFinishTags.put(accountId, finishTag);
+
+            Ticket ticket = new Ticket(accountId, priority, finishTag, sequence++, System.nanoTime(), new CountDownLatch(1));
+            queue.add(ticket);
+            dispatch();
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void cancel(Ticket ticket) {
+        lock.lock();
+        try {
+            if (!queue.remove(ticket)) {
+                // Admitted just before the interrupt - give the slot back
+                inFlight--;
+                dispatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        while (inFlight < maxInFlight && !queue.isEmpty()) {
+            Ticket next = queue.poll();
+            inFlight++;
+            virtualTime = Math.max(virtualTime, next.finishTag());
+            next.admitted().countDown();
+        }
+    }
+
+    private void parseAccountWeights() {
+        KeyValueSpec.parse(accountWeightsSpec, "ai.email.chat.llm.account-weights")
+            .forEach((accountId, weight) -> accountWeights.put(Long.parseLong(accountId), Math.max(1, weight)));
+    }
+
+    private record Ticket(Long accountId, Priority priority, double finishTag, long sequence,
+                          long enqueuedAt, CountDownLatch admitted) {
+    }
+}
@@ -0,0 +1,167 @@
+package ai.email.processor.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Opt-in cache of generated replies for requests that don't depend on a
+ * conversation's history, so the same question from many senders costs one
+ * generation. Keys are a SHA-256 of the model, the system prompt actually sent
+ * and the user message, both whitespace- and case-normalized. Entries expire after the TTL and
+ * the least recently used ones are evicted beyond max-entries.
+ */
+@Component
+public class ResponseCache {
+
+    private record Entry(String response, long expiresAt) {
+    }
+
+    @Value("${ai.email.chat.llm.response-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ai.email.chat.llm.response-cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${ai.email.chat.llm.response-cache.ttl:1h}")
+    private Duration ttl;
+
+    // Comma-separated account ids whose requests are answered without history, e.g. FAQ mailboxes
+    @Value("${ai.email.chat.llm.response-cache.stateless-accounts:}")
+    private String statelessAccountsSpec;
+
+    @Value("${spring.ai.ollama.chat.options.model:${ollama.model:llama3.2}}")
+    private String model;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    private final Counter hits;
+    private final Counter misses;
+    private Set<Long> statelessAccounts;
+
+    public ResponseCache(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("llm.response.cache")
+            .description("Replies looked up in the response cache")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        this.misses = Counter.builder("llm.response.cache")
+            .description("Replies looked up in the response cache")
+            .tag("result", "miss")
+            .register(meterRegistry);
+        Gauge.builder("llm.response.cache.size", this, cache -> cache.size())
+            .description("Replies currently cached")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void parseStatelessAccounts() {
+        try {
+            statelessAccounts = Stream.of(statelessAccountsSpec.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(Long::valueOf)
+                .collect(Collectors.toUnmodifiableSet());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid ai.email.chat.llm.response-cache.stateless-accounts '"
+                + statelessAccountsSpec + "', expected comma-separated account ids", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether the account's requests are answered without conversation history
+     */
+    public boolean isStateless(Long accountId) {
+        return enabled && statelessAccounts.contains(accountId);
+    }
+
+    /**
+     * @param systemPrompt the assembled system prompt, so a reply is only reused
+     *                     for a request sent with the same context
+     */
+    public String key(String systemPrompt, String userMessage) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            // The prompt quotes the question, so it is normalized the same way
+            digest.update(normalize(systemPrompt).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalize(userMessage).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Optional<String> get(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+                hits.increment();
+                return Optional.of(entry.response());
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String key, String response) {
+        synchronized (entries) {
+            entries.put(key, new Entry(response, System.currentTimeMillis() + ttl.toMillis()));
+        }
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Collapse whitespace and fold case, so trivially different copies of a question share an entry
+     */
+    private static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = !normalized.isEmpty();
+            } else {
+                if (space) {
+                    normalized.append(' ');
+                    space = false;
+                }
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+}
@@ -0,0 +1,237 @@
+package ai.email.processor.mail;
+
+import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.model.EmailAccountChangedEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps one authenticated mail connection per account between uses, so a burst of
+ * work pays for a single connect + TLS + login instead of one each. Connections are
+ * checked before reuse and re-established when the server dropped them, the
+ * account's settings changed, or its OAuth2 token rotated. Subclasses supply how a
+ * connection is opened, checked and closed.
+ * @param <C> the pooled connection
+ */
+public abstract class AccountConnectionPool<C> {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountConnectionPool.class);
+
+    private final String protocol;
+    private final Map<Long, PooledConnection> pool = new ConcurrentHashMap<>();
+
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    protected AccountConnectionPool(String protocol) {
+        this.protocol = protocol;
+    }
+
+    @FunctionalInterface
+    public interface ConnectionCallback<C, T, E extends Exception> {
+        T doWithConnection(C connection) throws MessagingException, E;
+    }
+
+    /**
+     * Open and authenticate a new connection for the account
+     */
+    protected abstract C open(EmailAccount account) throws MessagingException;
+
+    /**
+     * Whether the server still answers on a connection whose settings and token are current
+     */
+    protected abstract boolean isAlive(C connection);
+
+    protected abstract void close(C connection);
+
+    /**
+     * The account's connection settings and credentials; a change forces a reconnect
+     */
+    protected abstract String fingerprint(EmailAccount account);
+
+    protected abstract Duration maxIdle();
+
+    /**
+     * Whether an error raised by a callback leaves the connection unusable
+     */
+    protected boolean isConnectionError(MessagingException e) {
+        return true;
+    }
+
+    /**
+     * Run the callback against the account's pooled, connected connection.
+     * Access is exclusive per account. If the callback fails with a connection
+     * error, the connection is discarded and rebuilt on the next call.
+     */
+    protected <T, E extends Exception> T withConnection(EmailAccount account, ConnectionCallback<C, T, E> callback)
+            throws MessagingException, E {
+        PooledConnection entry = pool.computeIfAbsent(account.getId(), id -> new PooledConnection());
+        entry.lock.lock();
+        if (pool.get(account.getId()) != entry) {
+            // Invalidated while we waited for the lock - start over with a fresh entry
+            entry.lock.unlock();
+            return withConnection(account, callback);
+        }
+        try {
+            C connection = entry.acquire(account);
+            try {
+                return callback.doWithConnection(connection);
+            } catch (MessagingException e) {
+                if (isConnectionError(e)) {
+                    logger.debug("Discarding pooled {} connection for {} after error: {}",
+                        protocol, account.getEmailAddress(), e.getMessage());
+                    entry.close();
+                }
+                throw e;
+            }
+        } finally {
+            entry.lastUsed = System.currentTimeMillis();
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Close and forget the pooled connection for an account
+     */
+    public void invalidate(Long accountId) {
+        PooledConnection entry = pool.remove(accountId);
+        if (entry != null) {
+            entry.lock.lock();
+            try {
+                entry.close();
+            } finally {
+                entry.lock.unlock();
+            }
+            logger.debug("Invalidated pooled {} connection for account {}", protocol, accountId);
+        }
+    }
+
+    /**
+     * Forget the account's connection and close it without waiting for the thread
+     * that is using it, so a read blocked on that connection fails instead of hanging
+     */
+    public void abort(Long accountId) {
+        PooledConnection entry = pool.remove(accountId);
+        if (entry != null && entry.connection != null) {
+            logger.warn("Aborting pooled {} connection for account {}", protocol, accountId);
+            // Closing can wait on JavaMail's own locks, so the caller doesn't wait with it
+            Thread.ofPlatform()
+                .daemon()
+                .name(protocol.toLowerCase() + "-abort-" + accountId)
+                .start(entry::close);
+        }
+    }
+
+    @EventListener
+    public void onAccountChanged(EmailAccountChangedEvent event) {
+        invalidate(event.accountId());
+    }
+
+    /**
+     * Close connections that have not been used for max-idle. Subclasses schedule this.
+     */
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - maxIdle().toMillis();
+        pool.forEach((accountId, entry) -> {
+            // Skip entries that are in use; they are clearly not idle
+            if (entry.lastUsed < cutoff && entry.lock.tryLock()) {
+                try {
+                    if (entry.connection != null) {
+                        entry.close();
+                        evictions.incrementAndGet();
+                        logger.debug("Evicted idle {} connection for account {}", protocol, accountId);
+                    }
+                } finally {
+                    entry.lock.unlock();
+                }
+            }
+        });
+    }
+
+    public PoolStats getStats() {
+        int open = (int) pool.values().stream().filter(entry -> entry.connection != null).count();
+        return new PoolStats(open, connects.get(), reuses.get(), reconnects.get(), evictions.get());
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        pool.keySet().forEach(this::invalidate);
+    }
+
+    private final class PooledConnection {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile C connection;
+        private String settingsFingerprint;
+        private String accessToken;
+
+        /**
+         * Return a connection, reusing the existing one when it is still valid for
+         * the account's current settings and credentials
+         */
+        private C acquire(EmailAccount account) throws MessagingException {
+            if (connection != null) {
+                if (needsReconnect(account)) {
+                    reconnects.incrementAndGet();
+                    close();
+                } else {
+                    reuses.incrementAndGet();
+                    return connection;
+                }
+            }
+
+            // Opening refreshes the OAuth2 token on the account if it was about to expire
+            connection = open(account);
+            connects.incrementAndGet();
+            settingsFingerprint = fingerprint(account);
+            accessToken = account.getAccessToken();
+            return connection;
+        }
+
+        private boolean needsReconnect(EmailAccount account) {
+            if (!Objects.equals(settingsFingerprint, fingerprint(account))) {
+                logger.debug("{} settings changed for {}, reconnecting", protocol, account.getEmailAddress());
+                return true;
+            }
+            if (account.isOAuth2()) {
+                if (!Objects.equals(accessToken, account.getAccessToken())) {
+                    logger.debug("OAuth2 token rotated for {}, reconnecting", account.getEmailAddress());
+                    return true;
+                }
+                // Some servers end the session when the token it was opened with expires
+                if (account.getTokenExpiresAt() != null
+                        && LocalDateTime.now().plusMinutes(5).isAfter(account.getTokenExpiresAt())) {
+                    logger.debug("OAuth2 token for {} is expiring, reconnecting", account.getEmailAddress());
+                    return true;
+                }
+            }
+            if (!isAlive(connection)) {
+                logger.debug("Pooled {} connection for {} was dropped, reconnecting", protocol, account.getEmailAddress());
+                return true;
+            }
+            return false;
+        }
+
+        private void close() {
+            C current = connection;
+            connection = null;
+            if (current != null) {
+                AccountConnectionPool.this.close(current);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ai.email.processor.mail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The raw bytes of a message body, at most the configured text cap, decoded only
+ * when the body is written
+ */
+public final class BodyBuffer {
+
+    private final byte[] bytes;
+    private final int length;
+    private final Charset charset;
+    private final boolean html;
+    private final boolean truncated;
+
+    private BodyBuffer(byte[] bytes, int length, Charset charset, boolean html, boolean truncated) {
+        this.bytes = bytes;
+        this.length = length;
+        this.charset = charset;
+        this.html = html;
+        this.truncated = truncated;
+    }
+
+    /**
+     * A buffer holding plain text
+     */
+    public static BodyBuffer of(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return new BodyBuffer(bytes, bytes.length, StandardCharsets.UTF_8, false, false);
+    }
+
+    /**
+     * Read up to maxBytes from the stream. Does not close the stream.
+     * @param html whether the bytes are text/html rather than text/plain
+     */
+    public static BodyBuffer read(InputStream in, Charset charset, boolean html, int maxBytes) throws IOException {
+        // One byte past the cap tells a body that fits from one that was cut
+        byte[] bytes = in.readNBytes(maxBytes + 1);
+        boolean truncated = bytes.length > maxBytes;
+        return new BodyBuffer(bytes, Math.min(bytes.length, maxBytes), charset, html, truncated);
+    }
+
+    public int size() {
+        return length;
+    }
+
+    public boolean isHtml() {
+        return html;
+    }
+
+    /**
+     * Whether the body went on past the cap and only its start was kept
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public String text() {
+        return new String(bytes, 0, length, charset);
+    }
+}
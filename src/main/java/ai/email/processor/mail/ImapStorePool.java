@@ -0,0 +1,158 @@
+package ai.email.processor.mail;
+
+import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.oauth2.OAuth2Authenticator;
+import jakarta.mail.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Keeps one authenticated IMAP Store with an open INBOX per account across poll
+ * cycles, so each cycle doesn't pay for a full TCP + TLS + LOGIN/XOAUTH2 handshake.
+ */
+@Component
+public class ImapStorePool extends AccountConnectionPool<ImapStorePool.OpenInbox> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImapStorePool.class);
+
+    private final OAuth2Authenticator oauth2Authenticator;
+    private final MailSessionRegistry mailSessionRegistry;
+
+    @Value("${ai.email.chat.imap-pool.max-idle:10m}")
+    private Duration maxIdle;
+
+    record OpenInbox(Store store, Folder inbox) {
+    }
+
+    public ImapStorePool(OAuth2Authenticator oauth2Authenticator, MailSessionRegistry mailSessionRegistry) {
+        super("IMAP");
+        this.oauth2Authenticator = oauth2Authenticator;
+        this.mailSessionRegistry = mailSessionRegistry;
+    }
+
+    @FunctionalInterface
+    public interface InboxCallback<T> {
+        T doWithInbox(Folder inbox) throws MessagingException, IOException;
+    }
+
+    /**
+     * Run the callback against the account's pooled INBOX, opened READ_WRITE.
+     * Access is exclusive per account. If the callback fails with a messaging error
+     * the connection is discarded and rebuilt on the next call.
+     */
+    public <T> T withInbox(EmailAccount account, InboxCallback<T> callback) throws MessagingException, IOException {
+        return withConnection(account, connection -> callback.doWithInbox(connection.inbox()));
+    }
+
+    /**
+     * Open a new authenticated IMAP store for the account, using OAuth2 or basic
+     * authentication depending on the account type. Reads time out after
+     * ai.email.chat.mail.imap-timeout. The caller owns the returned store; it is
+     * not pooled.
+     */
+    public Store connect(EmailAccount account) throws MessagingException {
+        return connect(account, mailSessionRegistry.imapSession(account));
+    }
+
+    /**
+     * Like {@link #connect}, on a session whose read timeout leaves room for IMAP IDLE
+     */
+    public Store connectForIdle(EmailAccount account) throws MessagingException {
+        return connect(account, mailSessionRegistry.imapIdleSession(account));
+    }
+
+    private Store connect(EmailAccount account, Session session) throws MessagingException {
+        logger.debug("IMAP Settings - Host: {}, Port: {}, SSL: {}, Username: {}, AuthType: {}",
+            account.getImapHost(), account.getImapPort(), account.isUseSSL(), account.getUsername(), account.getAuthType());
+        try {
+            logger.debug("Connecting to IMAP server...");
+
+            Store store;
+            // Use OAuth2 or basic authentication based on account type
+            if (account.isOAuth2()) {
+                logger.info("Using OAuth2 authentication for {}", account.getEmailAddress());
+                store = oauth2Authenticator.connectImap(account, session);
+            } else {
+                logger.info("Using basic authentication for {}", account.getEmailAddress());
+                store = session.getStore();
+                store.connect(account.getImapHost(), account.getUsername(), account.getPassword());
+            }
+
+            logger.info("✓ Successfully connected to IMAP server for {}", account.getEmailAddress());
+            return store;
+        } catch (AuthenticationFailedException e) {
+            logger.error("✗ Authentication failed for {}", account.getEmailAddress());
+            logger.error("This could be due to:");
+            logger.error("  - Incorrect password");
+            logger.error("  - 2FA enabled without app-specific password");
+            logger.error("  - IMAP access not enabled");
+            logger.error("  - Account security settings blocking access");
+            throw e;
+        } catch (MessagingException e) {
+            logger.error("✗ Messaging error for {}: {}", account.getEmailAddress(), e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ai.email.chat.imap-pool.eviction-interval:60000}")
+    public void evictIdle() {
+        super.evictIdle();
+    }
+
+    @Override
+    protected OpenInbox open(EmailAccount account) throws MessagingException {
+        Store store = connect(account);
+        try {
+            logger.debug("Opening INBOX folder...");
+            Folder inbox = store.getFolder("INBOX");
+            inbox.open(Folder.READ_WRITE);
+            return new OpenInbox(store, inbox);
+        } catch (MessagingException e) {
+            close(new OpenInbox(store, null));
+            throw e;
+        }
+    }
+
+    @Override
+    protected boolean isAlive(OpenInbox connection) {
+        // IMAPStore.isConnected() and IMAPFolder.isOpen() both issue a NOOP to
+        // verify the server hasn't dropped the connection
+        return connection.store().isConnected() && connection.inbox().isOpen();
+    }
+
+    @Override
+    protected void close(OpenInbox connection) {
+        try {
+            if (connection.inbox() != null && connection.inbox().isOpen()) {
+                connection.inbox().close(false);
+            }
+        } catch (MessagingException | IllegalStateException e) {
+            logger.debug("Error closing pooled INBOX: {}", e.getMessage());
+        }
+        try {
+            connection.store().close();
+        } catch (MessagingException e) {
+            logger.debug("Error closing pooled IMAP store: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    protected String fingerprint(EmailAccount account) {
+        return String.join("|", account.getImapHost(), String.valueOf(account.getImapPort()),
+            account.getUsername(), String.valueOf(account.isUseSSL()), account.getAuthType(),
+            String.valueOf(Objects.hashCode(account.getPassword())));
+    }
+
+    @Override
+    protected Duration maxIdle() {
+        return maxIdle;
+    }
+}
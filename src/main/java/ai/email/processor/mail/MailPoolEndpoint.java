@@ -0,0 +1,32 @@
+package ai.email.processor.mail;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing mail connection pool statistics at /actuator/mailpool
+ */
+@Component
+@Endpoint(id = "mailpool")
+public class MailPoolEndpoint {
+
+    private final ImapStorePool imapStorePool;
+    private final SmtpTransportPool smtpTransportPool;
+
+    public MailPoolEndpoint(ImapStorePool imapStorePool, SmtpTransportPool smtpTransportPool) {
+        this.imapStorePool = imapStorePool;
+        this.smtpTransportPool = smtpTransportPool;
+    }
+
+    @ReadOperation
+    public Map<String, Object> poolStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("imap", imapStorePool.getStats());
+        stats.put("smtp", smtpTransportPool.getStats());
+        return stats;
+    }
+}
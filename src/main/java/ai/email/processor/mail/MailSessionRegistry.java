@@ -0,0 +1,181 @@
+package ai.email.processor.mail;
+
+import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.model.EmailAccountChangedEvent;
+import jakarta.mail.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The one place that builds JavaMail sessions. IMAP and SMTP sessions are built
+ * once per account and shared by every caller until the account's connection
+ * settings change. Sessions carry no credentials; callers pass them on connect.
+ */
+@Component
+public class MailSessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailSessionRegistry.class);
+
+    private enum Kind { IMAP, IMAP_IDLE, SMTP }
+
+    private record Key(Long accountId, Kind kind) {
+    }
+
+    private record CachedSession(String settings, Session session) {
+    }
+
+    // Socket connect timeout for IMAP and SMTP (milliseconds)
+    @Value("${ai.email.chat.mail.connection-timeout:10000}")
+    private int connectionTimeout;
+
+    // IMAP read timeout for polling and connection tests (milliseconds)
+    @Value("${ai.email.chat.mail.imap-timeout:30000}")
+    private int imapTimeout;
+
+    // IMAP read timeout for IDLE connections, which legitimately wait between keepalives
+    @Value("${ai.email.chat.idle.read-timeout:30m}")
+    private Duration idleReadTimeout;
+
+    // SMTP read timeout (milliseconds)
+    @Value("${ai.email.chat.mail.smtp-timeout:30000}")
+    private int smtpTimeout;
+
+    private final Map<Key, CachedSession> sessions = new ConcurrentHashMap<>();
+
+    public Session imapSession(EmailAccount account) {
+        return session(account, Kind.IMAP);
+    }
+
+    /**
+     * IMAP session for a long-lived IDLE connection, with a read timeout longer than the keepalive interval
+     */
+    public Session imapIdleSession(EmailAccount account) {
+        return session(account, Kind.IMAP_IDLE);
+    }
+
+    public Session smtpSession(EmailAccount account) {
+        return session(account, Kind.SMTP);
+    }
+
+    /**
+     * Forget the account's sessions so the next use rebuilds them
+     */
+    public void invalidate(Long accountId) {
+        for (Kind kind : Kind.values()) {
+            sessions.remove(new Key(accountId, kind));
+        }
+    }
+
+    @EventListener
+    public void onAccountChanged(EmailAccountChangedEvent event) {
+        invalidate(event.accountId());
+    }
+
+    private Session session(EmailAccount account, Kind kind) {
+        String settings = settings(account, kind);
+        CachedSession cached = sessions.compute(new Key(account.getId(), kind), (key, existing) -> {
+            // Also catches setting changes made without an account-changed event, e.g. switching to OAuth2
+            if (existing != null && existing.settings().equals(settings)) {
+                return existing;
+            }
+            logger.debug("Building {} mail session for {}", kind, account.getEmailAddress());
+            Properties props = switch (kind) {
+                case IMAP -> imapProperties(account, imapTimeout);
+                case IMAP_IDLE -> imapProperties(account, idleReadTimeout.toMillis());
+                case SMTP -> smtpProperties(account);
+            };
+            return new CachedSession(settings, Session.getInstance(props));
+        });
+        return cached.session();
+    }
+
+    private static String settings(EmailAccount account, Kind kind) {
+        return kind != Kind.SMTP
+            ? String.join("|", account.getImapHost(), String.valueOf(account.getImapPort()),
+                String.valueOf(account.isUseSSL()), String.valueOf(account.isOAuth2()))
+            : String.join("|", account.getSmtpHost(), String.valueOf(account.getSmtpPort()),
+                String.valueOf(account.isUseSSL()), String.valueOf(account.isOAuth2()));
+    }
+
+    private Properties imapProperties(EmailAccount account, long readTimeout) {
+        Properties props = new Properties();
+        props.put("mail.imap.host", account.getImapHost());
+        props.put("mail.imap.port", account.getImapPort());
+        // The "imaps" store reads its settings under its own prefix
+        for (String prefix : new String[]{"mail.imap.", "mail.imaps."}) {
+            props.put(prefix + "connectiontimeout", String.valueOf(connectionTimeout));
+            props.put(prefix + "timeout", String.valueOf(readTimeout));
+        }
+        props.put("mail.debug", "false");
+
+        if (account.isOAuth2()) {
+            props.put("mail.store.protocol", "imap");
+            props.put("mail.imap.ssl.enable", "true");
+            props.put("mail.imap.ssl.trust", "*");
+
+            // Enable OAuth2 authentication
+            props.put("mail.imap.auth.mechanisms", "XOAUTH2");
+            props.put("mail.imap.auth.login.disable", "true");
+            props.put("mail.imap.auth.plain.disable", "true");
+            props.put("mail.debug.auth", "false");
+        } else {
+            props.put("mail.store.protocol", account.isUseSSL() ? "imaps" : "imap");
+            if (account.isUseSSL()) {
+                props.put("mail.imap.ssl.enable", "true");
+                props.put("mail.imap.ssl.trust", "*");
+            } else {
+                props.put("mail.imap.starttls.enable", "true");
+            }
+        }
+        return props;
+    }
+
+    private Properties smtpProperties(EmailAccount account) {
+        Properties props = new Properties();
+        props.put("mail.transport.protocol", "smtp");
+        props.put("mail.smtp.host", account.getSmtpHost());
+        props.put("mail.smtp.port", account.getSmtpPort());
+        props.put("mail.smtp.auth", "true");
+        props.put("mail.smtp.connectiontimeout", String.valueOf(connectionTimeout));
+        props.put("mail.smtp.timeout", String.valueOf(smtpTimeout));
+        props.put("mail.debug", "false");
+
+        if (account.isOAuth2()) {
+            // Use STARTTLS for port 587
+            if (account.getSmtpPort() == 587) {
+                props.put("mail.smtp.starttls.enable", "true");
+                props.put("mail.smtp.starttls.required", "true");
+                props.put("mail.smtp.ssl.protocols", "TLSv1.2");
+            } else {
+                props.put("mail.smtp.ssl.enable", "true");
+            }
+            props.put("mail.smtp.ssl.trust", "*");
+
+            // Enable OAuth2 authentication
+            props.put("mail.smtp.auth.mechanisms", "XOAUTH2");
+            props.put("mail.smtp.auth.login.disable", "true");
+            props.put("mail.smtp.auth.plain.disable", "true");
+            props.put("mail.debug.auth", "false");
+        } else if (account.getSmtpPort() == 587) {
+            // Port 587 uses STARTTLS, Port 465 uses SSL
+            props.put("mail.smtp.starttls.enable", "true");
+            props.put("mail.smtp.starttls.required", "true");
+            props.put("mail.smtp.ssl.protocols", "TLSv1.2 TLSv1.3");
+        } else if (account.getSmtpPort() == 465 || account.isUseSSL()) {
+            props.put("mail.smtp.ssl.enable", "true");
+            props.put("mail.smtp.ssl.trust", "*");
+            props.put("mail.smtp.ssl.protocols", "TLSv1.2 TLSv1.3");
+        } else {
+            props.put("mail.smtp.starttls.enable", "true");
+        }
+        return props;
+    }
+}
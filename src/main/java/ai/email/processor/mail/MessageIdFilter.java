@@ -0,0 +1,77 @@
+package ai.email.processor.mail;
+
+import ai.email.processor.repository.MessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU of Message-IDs known to be stored, so re-delivered or re-scanned mail
+ * is recognised without a database round trip. A hit is authoritative because ids
+ * are only added after their message committed; a miss may just mean the id was
+ * evicted, and is settled by the unique index on messages.email_message_id.
+ */
+@Component
+public class MessageIdFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageIdFilter.class);
+
+    private final MessageRepository messageRepository;
+    private final Map<String, Boolean> recent;
+    private final int capacity;
+
+    public MessageIdFilter(MessageRepository messageRepository,
+                           @Value("${ai.email.chat.dedup.capacity:100000}") int capacity) {
+        this.messageRepository = messageRepository;
+        this.capacity = Math.max(1, capacity);
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > MessageIdFilter.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Load the most recently stored Message-IDs
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        List<String> ids = messageRepository.findRecentEmailMessageIds(PageRequest.of(0, capacity));
+        synchronized (recent) {
+            // Oldest first, so the newest ids end up most recently used
+            for (int i = ids.size() - 1; i >= 0; i--) {
+                recent.put(ids.get(i), Boolean.TRUE);
+            }
+        }
+        logger.info("Seeded Message-ID filter with {} recent id(s)", ids.size());
+    }
+
+    public boolean contains(String messageId) {
+        if (messageId == null) {
+            return false;
+        }
+        synchronized (recent) {
+            return recent.get(messageId) != null;
+        }
+    }
+
+    /**
+     * Record a Message-ID whose message has been committed
+     */
+    public void add(String messageId) {
+        if (messageId != null) {
+            synchronized (recent) {
+                recent.put(messageId, Boolean.TRUE);
+            }
+        }
+    }
+}
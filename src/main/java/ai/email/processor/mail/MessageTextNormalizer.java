@@ -0,0 +1,343 @@
+package ai.email.processor.mail;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cuts an incoming body down to what the sender actually wrote before it is stored
+ * and used in prompts: HTML is reduced to text, quoted history and signatures are
+ * dropped (the conversation history is added to prompts separately), and runs of
+ * whitespace are collapsed. Each stage is a single pass over the characters into
+ * one pre-sized StringBuilder, without regular expressions.
+ */
+@Component
+public class MessageTextNormalizer {
+
+    // Elements whose content is never shown
+    private static final String[] HIDDEN_ELEMENTS = {"script", "style", "head", "title"};
+
+    // Elements that start a new line
+    private static final String[] BLOCK_ELEMENTS = {"p", "div", "br", "tr", "li", "ul", "ol", "table", "hr", "pre",
+        "h1", "h2", "h3", "h4", "h5", "h6", "blockquote", "section", "article", "header", "footer"};
+
+    private final DistributionSummary bytesSaved;
+
+    public MessageTextNormalizer(MeterRegistry meterRegistry) {
+        this.bytesSaved = DistributionSummary.builder("email.body.normalized.bytes.saved")
+            .description("Bytes removed from an incoming body by HTML, quote and signature stripping")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Decode and normalize the body, recording how many bytes it lost
+     */
+    public String normalize(BodyBuffer body) {
+        String normalized = normalize(body.text(), body.isHtml());
+        bytesSaved.record(Math.max(0, body.size() - utf8Length(normalized)));
+        return normalized;
+    }
+
+    static String normalize(String text, boolean html) {
+        String plain = html ? htmlToText(text) : text;
+        String stripped = cleanLines(plain, true);
+        // A body that was nothing but quotes is better sent as-is than not at all
+        return stripped.isEmpty() ? cleanLines(plain, false) : stripped;
+    }
+
+    /**
+     * Drop tags, comments, hidden elements and blockquotes (quoted replies), turn
+     * block elements into line breaks and decode entities
+     */
+    static String htmlToText(String html) {
+        StringBuilder out = new StringBuilder(html.length() / 2);
+        int quoteDepth = 0;
+        int i = 0;
+        int n = html.length();
+        while (i < n) {
+            char c = html.charAt(i);
+            if (c == '<' && i + 1 < n && isTagStart(html.charAt(i + 1))) {
+                if (html.startsWith("<!--", i)) {
+                    int end = html.indexOf("-->", i + 4);
+                    i = end < 0 ? n : end + 3;
+                    continue;
+                }
+                int end = html.indexOf('>', i + 1);
+                if (end < 0) {
+                    break;
+                }
+                boolean closing = i + 1 < end && html.charAt(i + 1) == '/';
+                int nameStart = closing ? i + 2 : i + 1;
+                int nameEnd = nameStart;
+                while (nameEnd < end && Character.isLetterOrDigit(html.charAt(nameEnd))) {
+                    nameEnd++;
+                }
+                i = end + 1;
+
+                String hidden = match(html, nameStart, nameEnd, HIDDEN_ELEMENTS);
+                if (hidden != null && !closing) {
+                    i = skipElement(html, i, hidden);
+                    continue;
+                }
+                if (match(html, nameStart, nameEnd, "blockquote")) {
+                    quoteDepth = closing ? Math.max(0, quoteDepth - 1) : quoteDepth + 1;
+                }
+                if (quoteDepth == 0 && match(html, nameStart, nameEnd, BLOCK_ELEMENTS) != null) {
+                    // Adjacent block boundaries make one line break; only <br> repeats
+                    if (match(html, nameStart, nameEnd, "br") || (!out.isEmpty() && out.charAt(out.length() - 1) != '\n')) {
+                        out.append('\n');
+                    }
+                    if (!closing && match(html, nameStart, nameEnd, "li")) {
+                        out.append("- ");
+                    }
+                }
+            } else if (quoteDepth > 0) {
+                i++;
+            } else if (c == '&') {
+                i = appendEntity(html, i, out);
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Keep the sender's own lines: stop at a reply header or signature, drop
+     * {@code >} quoted lines, collapse whitespace within lines and blank lines between them.
+     * A forwarded message is what the sender is asking about, so after a forward
+     * marker its header block and text are kept.
+     */
+    static String cleanLines(String text, boolean strip) {
+        StringBuilder out = new StringBuilder(text.length());
+        boolean blankBefore = false;
+        boolean forwarded = false;
+        int start = 0;
+        int n = text.length();
+        while (start < n) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = n;
+            }
+            int next = end + 1;
+            int first = start;
+            while (first < end && isSpace(text.charAt(first))) {
+                first++;
+            }
+            int last = end;
+            while (last > first && isSpace(text.charAt(last - 1))) {
+                last--;
+            }
+            start = next;
+
+            if (first == last) {
+                blankBefore = true;
+                continue;
+            }
+            if (strip) {
+                forwarded = forwarded || isForwardMarker(text, first, last);
+                if ((!forwarded && isReplyHeader(text, first, last, next)) || isSignature(text, first, last)) {
+                    break;
+                }
+                if (text.charAt(first) == '>') {
+                    continue;
+                }
+            }
+
+            if (!out.isEmpty()) {
+                out.append(blankBefore ? "\n\n" : "\n");
+            }
+            blankBefore = false;
+            appendCollapsed(text, first, last, out);
+        }
+        return out.toString();
+    }
+
+    private static boolean isReplyHeader(String text, int first, int last, int next) {
+        // "On Mon, 1 Jan 2024 at 10:00, Someone <someone@example.com> wrote:", possibly wrapped onto a second line
+        if (text.regionMatches(true, first, "On ", 0, 3)) {
+            if (endsWith(text, last, "wrote:")) {
+                return true;
+            }
+            int nextEnd = lineEnd(text, next);
+            return nextEnd > next && endsWith(text, trimEnd(text, next, nextEnd), "wrote:");
+        }
+        if (text.startsWith("-----Original Message-----", first)) {
+            return true;
+        }
+        // Outlook puts a rule of underscores, or just "From:" followed by "Sent:", above the quoted message
+        if (last - first >= 10 && isRun(text, first, last, '_')) {
+            return true;
+        }
+        if (text.regionMatches(true, first, "From:", 0, 5)) {
+            int lineStart = next;
+            for (int k = 0; k < 2 && lineStart < text.length(); k++) {
+                int lineStartTrimmed = skipSpaces(text, lineStart, lineEnd(text, lineStart));
+                if (text.regionMatches(true, lineStartTrimmed, "Sent:", 0, 5)
+                        || text.regionMatches(true, lineStartTrimmed, "Date:", 0, 5)) {
+                    return true;
+                }
+                lineStart = lineEnd(text, lineStart) + 1;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isForwardMarker(String text, int first, int last) {
+        // Gmail: "---------- Forwarded message ---------", Apple Mail: "Begin forwarded message:"
+        int i = first;
+        while (i < last && text.charAt(i) == '-') {
+            i++;
+        }
+        return (i > first && text.regionMatches(true, skipSpaces(text, i, last), "Forwarded message", 0, 17))
+            || text.regionMatches(true, first, "Begin forwarded message:", 0, 24);
+    }
+
+    private static boolean isSignature(String text, int first, int last) {
+        // "-- " is the standard delimiter; trailing whitespace was already trimmed
+        return (last - first == 2 && text.startsWith("--", first))
+            || text.regionMatches(true, first, "Sent from my ", 0, 13)
+            || text.regionMatches(true, first, "Get Outlook for ", 0, 16);
+    }
+
+    private static void appendCollapsed(String text, int from, int to, StringBuilder out) {
+        boolean space = false;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (isSpace(c)) {
+                space = true;
+            } else {
+                if (space) {
+                    out.append(' ');
+                    space = false;
+                }
+                out.append(c);
+            }
+        }
+    }
+
+    private static int appendEntity(String html, int i, StringBuilder out) {
+        int semi = html.indexOf(';', i + 1);
+        if (semi < 0 || semi - i > 10) {
+            out.append('&');
+            return i + 1;
+        }
+        if (html.charAt(i + 1) == '#') {
+            try {
+                boolean hex = semi > i + 2 && (html.charAt(i + 2) == 'x' || html.charAt(i + 2) == 'X');
+                int codePoint = hex
+                    ? Integer.parseInt(html, i + 3, semi, 16)
+                    : Integer.parseInt(html, i + 2, semi, 10);
+                out.appendCodePoint(codePoint == 0xA0 ? ' ' : codePoint);
+                return semi + 1;
+            } catch (IllegalArgumentException e) {
+                out.append('&');
+                return i + 1;
+            }
+        }
+        char decoded = switch (html.substring(i + 1, semi)) {
+            case "amp" -> '&';
+            case "lt" -> '<';
+            case "gt" -> '>';
+            case "quot" -> '"';
+            case "apos" -> '\'';
+            case "nbsp" -> ' ';
+            default -> '\0';
+        };
+        if (decoded == 0) {
+            out.append('&');
+            return i + 1;
+        }
+        out.append(decoded);
+        return semi + 1;
+    }
+
+    /**
+     * Position just past the element's closing tag, or the end of the document
+     */
+    private static int skipElement(String html, int from, String name) {
+        int i = from;
+        while ((i = html.indexOf("</", i)) >= 0) {
+            if (html.regionMatches(true, i + 2, name, 0, name.length())) {
+                int end = html.indexOf('>', i);
+                return end < 0 ? html.length() : end + 1;
+            }
+            i += 2;
+        }
+        return html.length();
+    }
+
+    private static String match(String html, int start, int end, String[] names) {
+        for (String name : names) {
+            if (match(html, start, end, name)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static boolean match(String html, int start, int end, String name) {
+        return end - start == name.length() && html.regionMatches(true, start, name, 0, name.length());
+    }
+
+    private static boolean isTagStart(char c) {
+        return Character.isLetter(c) || c == '/' || c == '!';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\u00A0' || c == '\f';
+    }
+
+    private static boolean isRun(String text, int from, int to, char c) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean endsWith(String text, int end, String suffix) {
+        int start = end - suffix.length();
+        return start >= 0 && text.regionMatches(true, start, suffix, 0, suffix.length());
+    }
+
+    private static int lineEnd(String text, int from) {
+        int end = text.indexOf('\n', from);
+        return end < 0 ? text.length() : end;
+    }
+
+    private static int trimEnd(String text, int from, int end) {
+        while (end > from && isSpace(text.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private static int skipSpaces(String text, int from, int end) {
+        while (from < end && isSpace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int utf8Length(CharSequence text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
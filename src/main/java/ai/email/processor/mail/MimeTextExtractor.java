@@ -0,0 +1,115 @@
+package ai.email.processor.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.internet.ContentType;
+import jakarta.mail.internet.MimeUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Picks the text of a message without downloading anything else. The part tree is
+ * walked using only the MIME structure (BODYSTRUCTURE for IMAP messages, which
+ * {@code FetchProfile.Item.CONTENT_INFO} prefetches in bulk); only the chosen
+ * text/plain part, or text/html when there is none, is fetched by its part number.
+ * Attachments are never opened.
+ */
+@Component
+public class MimeTextExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(MimeTextExtractor.class);
+
+    // Largest text part read; bigger ones are skipped before any of it is downloaded
+    @Value("${ai.email.chat.mail.max-text-bytes:262144}")
+    private int maxTextBytes;
+
+    private final Counter truncatedBodies;
+
+    public MimeTextExtractor(MeterRegistry meterRegistry) {
+        this.truncatedBodies = Counter.builder("email.body.truncated")
+            .description("Text parts that turned out longer than their structure said and were cut at the size limit")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return the message text, empty text if it has no text part, or empty if the
+     *         text part is larger than the configured cap
+     */
+    public Optional<BodyBuffer> extractText(Part message) throws MessagingException, IOException {
+        Part textPart = findTextPart(message, "text/plain");
+        if (textPart == null) {
+            textPart = findTextPart(message, "text/html");
+        }
+        if (textPart == null) {
+            return Optional.of(BodyBuffer.of(""));
+        }
+
+        // Size from the structure is the encoded size, a slight overestimate for base64
+        int size = textPart.getSize();
+        if (size > maxTextBytes) {
+            logger.warn("Text part is {} bytes, over the {} byte limit - skipping message", size, maxTextBytes);
+            return Optional.empty();
+        }
+        return Optional.of(read(textPart));
+    }
+
+    /**
+     * Depth-first search for the first inline part of the given type. Multiparts are
+     * opened because their content is just the structure; leaf parts are only
+     * inspected by type and disposition.
+     */
+    private Part findTextPart(Part part, String mimeType) throws MessagingException, IOException {
+        if (part.isMimeType("multipart/*")) {
+            Multipart multipart = (Multipart) part.getContent();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                Part found = findTextPart(multipart.getBodyPart(i), mimeType);
+                if (found != null) {
+                    return found;
+                }
+            }
+            return null;
+        }
+        if (part.isMimeType(mimeType) && !Part.ATTACHMENT.equalsIgnoreCase(part.getDisposition())) {
+            return part;
+        }
+        return null;
+    }
+
+    /**
+     * Stream the part's decoded bytes into a buffer, stopping at the cap in case the
+     * structure under-reported its size
+     */
+    private BodyBuffer read(Part part) throws MessagingException, IOException {
+        try (InputStream in = part.getInputStream()) {
+            BodyBuffer body = BodyBuffer.read(in, charset(part), part.isMimeType("text/html"), maxTextBytes);
+            if (body.isTruncated()) {
+                truncatedBodies.increment();
+                logger.warn("Text part is longer than the {} bytes its structure reported - keeping only the first {}",
+                    part.getSize(), maxTextBytes);
+            }
+            return body;
+        }
+    }
+
+    private static Charset charset(Part part) {
+        try {
+            String charset = new ContentType(part.getContentType()).getParameter("charset");
+            // Undeclared 8-bit text is far more often UTF-8 than anything else, and ASCII is a subset
+            return charset == null ? StandardCharsets.UTF_8 : Charset.forName(MimeUtility.javaCharset(charset));
+        } catch (MessagingException | IllegalArgumentException e) {
+            logger.debug("Unusable charset on text part ({}), reading as UTF-8", e.getMessage());
+            return StandardCharsets.UTF_8;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ai.email.processor.mail;
+
+/**
+ * Counters for a per-account mail connection pool
+ */
+public record PoolStats(int open, long connects, long reuses, long reconnects, long evictions) {
+}
@@ -0,0 +1,134 @@
+package ai.email.processor.mail;
+
+import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.oauth2.OAuth2Authenticator;
+import jakarta.mail.*;
+import org.eclipse.angus.mail.smtp.SMTPTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Keeps one authenticated SMTP Transport per account between sends, so a burst of
+ * replies shares a single connect + STARTTLS + AUTH instead of paying for one each.
+ * Connections are checked with RSET before reuse.
+ */
+@Component
+public class SmtpTransportPool extends AccountConnectionPool<SmtpTransportPool.OpenTransport> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    private final OAuth2Authenticator oauth2Authenticator;
+    private final MailSessionRegistry mailSessionRegistry;
+
+    @Value("${ai.email.chat.smtp-pool.max-idle:4m}")
+    private Duration maxIdle;
+
+    record OpenTransport(Session session, Transport transport) {
+    }
+
+    public SmtpTransportPool(OAuth2Authenticator oauth2Authenticator, MailSessionRegistry mailSessionRegistry) {
+        super("SMTP");
+        this.oauth2Authenticator = oauth2Authenticator;
+        this.mailSessionRegistry = mailSessionRegistry;
+    }
+
+    @FunctionalInterface
+    public interface TransportCallback<T> {
+        T doWithTransport(Session session, Transport transport) throws MessagingException;
+    }
+
+    /**
+     * Run the callback against the account's pooled, connected transport.
+     * Access is exclusive per account. If the callback fails with a messaging error
+     * other than a rejected recipient, the connection is discarded and rebuilt on
+     * the next call.
+     */
+    public <T> T withTransport(EmailAccount account, TransportCallback<T> callback) throws MessagingException {
+        return withConnection(account, connection -> callback.doWithTransport(connection.session(), connection.transport()));
+    }
+
+    /**
+     * Open a new authenticated SMTP transport for the account, using OAuth2 or basic
+     * authentication depending on the account type. The caller owns the returned
+     * transport; it is not pooled.
+     */
+    public Transport connect(EmailAccount account) throws MessagingException {
+        logger.debug("SMTP Settings - Host: {}, Port: {}, SSL: {}, AuthType: {}",
+            account.getSmtpHost(), account.getSmtpPort(), account.isUseSSL(), account.getAuthType());
+        Transport transport;
+        if (account.isOAuth2()) {
+            logger.info("Using OAuth2 authentication for SMTP: {}", account.getEmailAddress());
+            transport = oauth2Authenticator.connectSmtp(account);
+        } else {
+            logger.info("Using basic authentication for SMTP: {}", account.getEmailAddress());
+            transport = mailSessionRegistry.smtpSession(account).getTransport("smtp");
+            transport.connect(account.getSmtpHost(), account.getSmtpPort(), account.getUsername(), account.getPassword());
+        }
+        logger.debug("✓ Connected to SMTP server for {}", account.getEmailAddress());
+        return transport;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ai.email.chat.smtp-pool.eviction-interval:30000}")
+    public void evictIdle() {
+        super.evictIdle();
+    }
+
+    @Override
+    protected OpenTransport open(EmailAccount account) throws MessagingException {
+        // connectSmtp refreshes the token on the account if it was about to expire
+        Transport transport = connect(account);
+        return new OpenTransport(mailSessionRegistry.smtpSession(account), transport);
+    }
+
+    /**
+     * RSET both proves the connection is still up and clears any half-finished
+     * transaction left over from a failed send
+     */
+    @Override
+    protected boolean isAlive(OpenTransport connection) {
+        if (connection.transport() instanceof SMTPTransport smtp) {
+            try {
+                return smtp.simpleCommand("RSET") == 250;
+            } catch (MessagingException e) {
+                return false;
+            }
+        }
+        return connection.transport().isConnected();
+    }
+
+    @Override
+    protected void close(OpenTransport connection) {
+        try {
+            connection.transport().close();
+        } catch (MessagingException e) {
+            logger.debug("Error closing pooled SMTP transport: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * The server refused the message or its recipients; the connection itself is fine
+     */
+    @Override
+    protected boolean isConnectionError(MessagingException e) {
+        return !(e instanceof SendFailedException);
+    }
+
+    @Override
+    protected String fingerprint(EmailAccount account) {
+        return String.join("|", account.getSmtpHost(), String.valueOf(account.getSmtpPort()),
+            account.getUsername(), String.valueOf(account.isUseSSL()), account.getAuthType(),
+            String.valueOf(Objects.hashCode(account.getPassword())));
+    }
+
+    @Override
+    protected Duration maxIdle() {
+        return maxIdle;
+    }
+}
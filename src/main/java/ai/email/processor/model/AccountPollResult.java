@@ -0,0 +1,27 @@
+package ai.email.processor.model;
+
+/**
+ * Outcome of polling a single email account during one check cycle
+ */
+public record AccountPollResult(Long accountId,
+                                String emailAddress,
+                                Status status,
+                                int messagesProcessed,
+                                long durationMillis,
+                                String error) {
+
+    public enum Status {
+        SUCCESS,
+        FAILED,
+        TIMED_OUT, // Did not finish before the cycle deadline
+        SKIPPED    // Still being polled by a previous cycle
+    }
+
+    public static AccountPollResult success(Long accountId, String emailAddress, int messagesProcessed, long durationMillis) {
+        return new AccountPollResult(accountId, emailAddress, Status.SUCCESS, messagesProcessed, durationMillis, null);
+    }
+
+    public static AccountPollResult failure(Long accountId, String emailAddress, Status status, long durationMillis, String error) {
+        return new AccountPollResult(accountId, emailAddress, status, 0, durationMillis, error);
+    }
+}
@@ -0,0 +1,15 @@
+package ai.email.processor.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * View of a conversation, with its message count but without its messages or
+ * account details
+ */
+public record ConversationSummary(Long id,
+                                  Long emailAccountId,
+                                  String participantEmail,
+                                  LocalDateTime createdAt,
+                                  LocalDateTime lastMessageAt,
+                                  Long messageCount) {
+}
@@ -0,0 +1,10 @@
+package ai.email.processor.model;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. Pass nextCursor back as the cursor
+ * parameter to get the following page; it is null on the last page.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+}
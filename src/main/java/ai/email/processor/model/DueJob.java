@@ -0,0 +1,7 @@
+package ai.email.processor.model;
+
+/**
+ * A job waiting for a generation worker, with the account it belongs to
+ */
+public record DueJob(Long id, Long emailAccountId) {
+}
@@ -0,0 +1,8 @@
+package ai.email.processor.model;
+
+/**
+ * Published when an email account's settings change or the account is deleted,
+ * so cached connections for it can be dropped
+ */
+public record EmailAccountChangedEvent(Long accountId) {
+}
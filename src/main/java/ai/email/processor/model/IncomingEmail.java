@@ -0,0 +1,10 @@
+package ai.email.processor.model;
+
+import ai.email.processor.mail.BodyBuffer;
+
+/**
+ * An AI request email read from a mailbox, ready to be stored. The body stays in
+ * its raw bytes until the message is written.
+ */
+public record IncomingEmail(String senderEmail, String subject, BodyBuffer body, String messageId) {
+}
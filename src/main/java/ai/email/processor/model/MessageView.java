@@ -0,0 +1,16 @@
+package ai.email.processor.model;
+
+import ai.email.processor.entity.Message.MessageRole;
+
+import java.time.LocalDateTime;
+
+/**
+ * View of a single message in a conversation
+ */
+public record MessageView(Long id,
+                          Long conversationId,
+                          MessageRole role,
+                          String content,
+                          String emailSubject,
+                          LocalDateTime createdAt) {
+}
@@ -0,0 +1,21 @@
+package ai.email.processor.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Summary of one email check cycle across all active accounts
+ */
+public record PollCycleReport(Instant startedAt,
+                              long durationMillis,
+                              boolean concurrent,
+                              List<AccountPollResult> results) {
+
+    public long count(AccountPollResult.Status status) {
+        return results.stream().filter(result -> result.status() == status).count();
+    }
+
+    public int messagesProcessed() {
+        return results.stream().mapToInt(AccountPollResult::messagesProcessed).sum();
+    }
+}
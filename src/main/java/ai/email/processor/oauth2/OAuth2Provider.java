@@ -4,7 +4,8 @@ import ai.email.processor.entity.EmailAccount;
 
 /**
  * Interface for OAuth2 providers (Google, Microsoft, Yahoo, etc.)
- * Each provider implementation handles provider-specific OAuth2 flows
+ * Each provider implementation handles provider-specific OAuth2 flows.
+ * Implementations should make their HTTP calls through the shared oauth2RestTemplate bean.
  */
 public interface OAuth2Provider {
 
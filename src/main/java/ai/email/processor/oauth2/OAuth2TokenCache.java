@@ -0,0 +1,53 @@
+package ai.email.processor.oauth2;
+
+import ai.email.processor.model.EmailAccountChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory cache of OAuth2 access tokens by account id, so connecting to IMAP or
+ * SMTP doesn't need a database round trip to find the current token
+ */
+@Component
+public class OAuth2TokenCache {
+
+    private final Map<Long, CachedToken> tokens = new ConcurrentHashMap<>();
+
+    public record CachedToken(String accessToken, LocalDateTime expiresAt) {
+
+        /**
+         * Whether the token is still usable for at least the given margin
+         */
+        public boolean isValidFor(Duration margin) {
+            return accessToken != null
+                && (expiresAt == null || LocalDateTime.now().plus(margin).isBefore(expiresAt));
+        }
+    }
+
+    public Optional<CachedToken> get(Long accountId) {
+        return Optional.ofNullable(tokens.get(accountId));
+    }
+
+    public void put(Long accountId, String accessToken, LocalDateTime expiresAt) {
+        if (accessToken == null) {
+            tokens.remove(accountId);
+        } else {
+            tokens.put(accountId, new CachedToken(accessToken, expiresAt));
+        }
+    }
+
+    public void invalidate(Long accountId) {
+        tokens.remove(accountId);
+    }
+
+    @EventListener
+    public void onAccountChanged(EmailAccountChangedEvent event) {
+        invalidate(event.accountId());
+    }
+}
@@ -4,12 +4,18 @@ import ai.email.processor.entity.EmailAccount;
 import ai.email.processor.repository.EmailAccountRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service for managing OAuth2 tokens across all providers
@@ -19,11 +25,22 @@ public class OAuth2TokenService {
 
     private static final Logger logger = LoggerFactory.getLogger(OAuth2TokenService.class);
 
+    // Tokens closer than this to expiry are refreshed before they are handed out
+    private static final Duration USABLE_MARGIN = Duration.ofMinutes(5);
+
     private final EmailAccountRepository accountRepository;
+    private final OAuth2TokenCache tokenCache;
     private final Map<String, OAuth2Provider> providers = new HashMap<>();
+    // Refreshes currently running, by account id; concurrent callers share the same future
+    private final Map<Long, CompletableFuture<OAuth2TokenResponse>> inFlightRefreshes = new ConcurrentHashMap<>();
+
+    // The background refresher renews tokens this long before they expire
+    @Value("${app.oauth2.token-refresh-ahead:10m}")
+    private Duration refreshAhead;
 
-    public OAuth2TokenService(EmailAccountRepository accountRepository) {
+    public OAuth2TokenService(EmailAccountRepository accountRepository, OAuth2TokenCache tokenCache) {
         this.accountRepository = accountRepository;
+        this.tokenCache = tokenCache;
     }
 
     /**
@@ -63,6 +80,7 @@ public class OAuth2TokenService {
         account.setTokenExpiresAt(tokenResponse.getExpiresAt());
         account.setAuthType("oauth2");
         accountRepository.save(account);
+        tokenCache.put(account.getId(), account.getAccessToken(), account.getTokenExpiresAt());
         logger.info("Stored OAuth2 tokens for account: {}", account.getEmailAddress());
     }
 
@@ -71,15 +89,17 @@ public class OAuth2TokenService {
      * @param account The email account
      * @return true if token was refreshed, false if refresh wasn't needed or failed
      */
-    @Transactional
     public boolean refreshTokenIfNeeded(EmailAccount account) {
         if (!account.isOAuth2()) {
             return false; // Not an OAuth2 account
         }
 
+        // The background refresher or another caller may already have a newer token
+        applyCachedToken(account);
+
         // Check if token is expired or will expire in the next 5 minutes
         if (account.getTokenExpiresAt() != null &&
-            LocalDateTime.now().plusMinutes(5).isAfter(account.getTokenExpiresAt())) {
+            LocalDateTime.now().plus(USABLE_MARGIN).isAfter(account.getTokenExpiresAt())) {
 
             logger.info("Access token expired or expiring soon for account: {}, attempting refresh",
                        account.getEmailAddress());
@@ -91,11 +111,12 @@ public class OAuth2TokenService {
     }
 
     /**
-     * Force refresh the access token
+     * Force refresh the access token.
+     * Single-flight per account: if a refresh is already running, this waits for it
+     * and takes its result instead of calling the provider again.
      * @param account The email account
      * @return true if refresh succeeded, false otherwise
      */
-    @Transactional
     public boolean refreshToken(EmailAccount account) {
         if (!account.isOAuth2()) {
             logger.error("Cannot refresh token for non-OAuth2 account: {}", account.getEmailAddress());
@@ -108,48 +129,125 @@ public class OAuth2TokenService {
             return false;
         }
 
-        try {
-            OAuth2TokenResponse tokenResponse = provider.refreshAccessToken(account.getRefreshToken());
-
-            account.setAccessToken(tokenResponse.getAccessToken());
-            account.setTokenExpiresAt(tokenResponse.getExpiresAt());
-
-            // Some providers may return a new refresh token
-            if (tokenResponse.getRefreshToken() != null) {
-                account.setRefreshToken(tokenResponse.getRefreshToken());
+        CompletableFuture<OAuth2TokenResponse> refresh = new CompletableFuture<>();
+        CompletableFuture<OAuth2TokenResponse> inFlight = inFlightRefreshes.putIfAbsent(account.getId(), refresh);
+        if (inFlight == null) {
+            try {
+                refresh.complete(refreshAndStore(account, provider));
+            } catch (Exception e) {
+                refresh.completeExceptionally(e);
+            } finally {
+                inFlightRefreshes.remove(account.getId(), refresh);
             }
+        } else {
+            logger.debug("Waiting for in-flight token refresh for account: {}", account.getEmailAddress());
+            refresh = inFlight;
+        }
 
-            accountRepository.save(account);
-            logger.info("Successfully refreshed access token for account: {}", account.getEmailAddress());
+        try {
+            applyTokens(account, refresh.join());
             return true;
-
-        } catch (Exception e) {
-            logger.error("Failed to refresh access token for account: {}", account.getEmailAddress(), e);
+        } catch (CompletionException e) {
+            logger.error("Failed to refresh access token for account: {}", account.getEmailAddress(), e.getCause());
             return false;
         }
     }
 
     /**
-     * Get a valid access token for an account, refreshing if necessary
+     * Call the provider and publish the new tokens to the database and the cache
+     * before anyone waiting on the refresh sees them
+     */
+    private OAuth2TokenResponse refreshAndStore(EmailAccount account, OAuth2Provider provider) {
+        OAuth2TokenResponse tokenResponse = provider.refreshAccessToken(account.getRefreshToken());
+
+        // Some providers may return a new refresh token
+        String refreshToken = tokenResponse.getRefreshToken() != null ? tokenResponse.getRefreshToken() : account.getRefreshToken();
+        accountRepository.updateTokens(account.getId(), tokenResponse.getAccessToken(), refreshToken,
+            tokenResponse.getExpiresAt());
+        tokenCache.put(account.getId(), tokenResponse.getAccessToken(), tokenResponse.getExpiresAt());
+        logger.info("Successfully refreshed access token for account: {}", account.getEmailAddress());
+        return tokenResponse;
+    }
+
+    private static void applyTokens(EmailAccount account, OAuth2TokenResponse tokenResponse) {
+        account.setAccessToken(tokenResponse.getAccessToken());
+        account.setTokenExpiresAt(tokenResponse.getExpiresAt());
+        if (tokenResponse.getRefreshToken() != null) {
+            account.setRefreshToken(tokenResponse.getRefreshToken());
+        }
+    }
+
+    /**
+     * Get a valid access token for an account, refreshing if necessary.
+     * Served from the token cache when possible; the account is updated with the
+     * token that was handed out.
      * @param account The email account
      * @return The valid access token, or null if unable to get one
      */
-    @Transactional
     public String getValidAccessToken(EmailAccount account) {
         if (!account.isOAuth2()) {
             return null;
         }
 
-        // Refresh if needed
+        OAuth2TokenCache.CachedToken cached = tokenCache.get(account.getId())
+            .filter(token -> token.isValidFor(USABLE_MARGIN))
+            .orElse(null);
+        if (cached != null) {
+            account.setAccessToken(cached.accessToken());
+            account.setTokenExpiresAt(cached.expiresAt());
+            return cached.accessToken();
+        }
+
+        // Cache miss - only happens before the refresher's first run or if it couldn't refresh
         refreshTokenIfNeeded(account);
+        OAuth2TokenCache.CachedToken current = new OAuth2TokenCache.CachedToken(account.getAccessToken(), account.getTokenExpiresAt());
+        if (current.isValidFor(USABLE_MARGIN)) {
+            tokenCache.put(account.getId(), current.accessToken(), current.expiresAt());
+            return current.accessToken();
+        }
+        if (current.isValidFor(Duration.ZERO)) {
+            // The refresh failed, but the old token still works for a few minutes; don't cache it
+            logger.warn("Using access token for {} that expires at {}, refresh failed",
+                account.getEmailAddress(), current.expiresAt());
+            return current.accessToken();
+        }
+        logger.error("No valid access token for {}", account.getEmailAddress());
+        return null;
+    }
 
-        // Reload account from database to get updated token
-        EmailAccount reloadedAccount = accountRepository.findById(account.getId()).orElse(null);
-        if (reloadedAccount == null) {
-            return null;
+    /**
+     * Renew tokens of active accounts that expire within refresh-ahead, so IMAP and
+     * SMTP connects find a fresh token in the cache instead of waiting on the provider
+     */
+    @Scheduled(fixedDelayString = "${app.oauth2.token-refresh-interval:60000}")
+    public void refreshExpiringTokens() {
+        LocalDateTime threshold = LocalDateTime.now().plus(refreshAhead);
+        for (EmailAccount account : accountRepository.findByActiveTrue()) {
+            if (!account.isOAuth2() || account.getRefreshToken() == null) {
+                continue;
+            }
+            applyCachedToken(account);
+            if (account.getTokenExpiresAt() != null && threshold.isAfter(account.getTokenExpiresAt())) {
+                logger.debug("Refreshing access token for {} ahead of expiry at {}",
+                    account.getEmailAddress(), account.getTokenExpiresAt());
+                refreshToken(account);
+            } else {
+                tokenCache.put(account.getId(), account.getAccessToken(), account.getTokenExpiresAt());
+            }
         }
+    }
 
-        return reloadedAccount.getAccessToken();
+    /**
+     * Copy the cached token onto the account if it is newer than the one the account holds
+     */
+    private void applyCachedToken(EmailAccount account) {
+        tokenCache.get(account.getId())
+            .filter(token -> account.getTokenExpiresAt() == null
+                || (token.expiresAt() != null && token.expiresAt().isAfter(account.getTokenExpiresAt())))
+            .ifPresent(token -> {
+                account.setAccessToken(token.accessToken());
+                account.setTokenExpiresAt(token.expiresAt());
+            });
     }
 
     /**
@@ -163,6 +261,7 @@ public class OAuth2TokenService {
         account.setTokenExpiresAt(null);
         account.setAuthType("basic");
         accountRepository.save(account);
+        tokenCache.invalidate(account.getId());
         logger.info("Revoked OAuth2 access for account: {}", account.getEmailAddress());
     }
 }
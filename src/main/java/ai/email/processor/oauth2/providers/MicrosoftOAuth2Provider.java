@@ -43,9 +43,13 @@ public class MicrosoftOAuth2Provider implements OAuth2Provider {
     @Value("${app.oauth2.microsoft.client-secret}")
     private String clientSecret;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    public MicrosoftOAuth2Provider(RestTemplate oauth2RestTemplate) {
+        this.restTemplate = oauth2RestTemplate;
+    }
+
     @Override
     public String getProviderName() {
         return "microsoft";
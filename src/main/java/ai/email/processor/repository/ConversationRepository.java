@@ -2,9 +2,15 @@ package ai.email.processor.repository;
 
 import ai.email.processor.entity.Conversation;
 import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.model.ConversationSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,4 +25,34 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
     List<Conversation> findByEmailAccount(EmailAccount emailAccount);
 
     List<Conversation> findByEmailAccountOrderByLastMessageAtDesc(EmailAccount emailAccount);
+
+    @Query("select new ai.email.processor.model.ConversationSummary(c.id, c.emailAccount.id, c.participantEmail, " +
+           "c.createdAt, c.lastMessageAt, (select count(m) from Message m where m.conversation = c)) " +
+           "from Conversation c where c.id = :id")
+    Optional<ConversationSummary> findSummaryById(@Param("id") Long id);
+
+    /**
+     * First page of an account's conversations, most recently active first
+     */
+    @Query("select new ai.email.processor.model.ConversationSummary(c.id, c.emailAccount.id, c.participantEmail, " +
+           "c.createdAt, c.lastMessageAt, (select count(m) from Message m where m.conversation = c)) " +
+           "from Conversation c where c.emailAccount.id = :accountId " +
+           "order by c.lastMessageAt desc, c.id desc")
+    List<ConversationSummary> findSummaries(@Param("accountId") Long accountId, Pageable pageable);
+
+    /**
+     * Page following the conversation (lastMessageAt, id), by keyset instead of offset
+     */
+    @Query("select new ai.email.processor.model.ConversationSummary(c.id, c.emailAccount.id, c.participantEmail, " +
+           "c.createdAt, c.lastMessageAt, (select count(m) from Message m where m.conversation = c)) " +
+           "from Conversation c where c.emailAccount.id = :accountId " +
+           "and (c.lastMessageAt < :lastMessageAt or (c.lastMessageAt = :lastMessageAt and c.id < :id)) " +
+           "order by c.lastMessageAt desc, c.id desc")
+    List<ConversationSummary> findSummariesAfter(@Param("accountId") Long accountId,
+                                                 @Param("lastMessageAt") LocalDateTime lastMessageAt,
+                                                 @Param("id") Long id, Pageable pageable);
+
+    @Modifying
+    @Query("update Conversation c set c.lastMessageAt = :at where c.id = :id")
+    int updateLastMessageAt(@Param("id") Long id, @Param("at") LocalDateTime at);
 }
@@ -2,8 +2,13 @@ package ai.email.processor.repository;
 
 import ai.email.processor.entity.EmailAccount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +20,15 @@ public interface EmailAccountRepository extends JpaRepository<EmailAccount, Long
     List<EmailAccount> findByActiveTrue();
 
     boolean existsByEmailAddress(String emailAddress);
+
+    /**
+     * Write refreshed OAuth2 tokens without touching the rest of the account.
+     * updatedAt is left alone: a token refresh is not an edit of the account.
+     */
+    @Transactional
+    @Modifying
+    @Query("update EmailAccount a set a.accessToken = :accessToken, a.refreshToken = :refreshToken, " +
+           "a.tokenExpiresAt = :expiresAt where a.id = :id")
+    int updateTokens(@Param("id") Long id, @Param("accessToken") String accessToken,
+                     @Param("refreshToken") String refreshToken, @Param("expiresAt") LocalDateTime expiresAt);
 }
@@ -0,0 +1,66 @@
+package ai.email.processor.repository;
+
+import ai.email.processor.entity.EmailJob;
+import ai.email.processor.entity.EmailJob.JobStatus;
+import ai.email.processor.model.DueJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EmailJobRepository extends JpaRepository<EmailJob, Long> {
+
+    @Query("select j from EmailJob j join fetch j.emailAccount join fetch j.conversation where j.id = :id")
+    Optional<EmailJob> findWithAssociationsById(@Param("id") Long id);
+
+    @Query("select new ai.email.processor.model.DueJob(j.id, j.emailAccount.id) from EmailJob j " +
+           "where j.status = :status and j.nextAttemptAt <= :now order by j.id")
+    List<DueJob> findDueJobs(@Param("status") JobStatus status, @Param("now") LocalDateTime now);
+
+    /**
+     * Atomically move a job from one status to another
+     * @return 1 if this caller won the transition, 0 if the job was not in the expected status
+     */
+    @Modifying
+    @Query("update EmailJob j set j.status = :to, j.updatedAt = :now where j.id = :id and j.status = :from")
+    int transition(@Param("id") Long id, @Param("from") JobStatus from, @Param("to") JobStatus to,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Atomically move a job from one status to another and lease it to the caller
+     * @return 1 if this caller won the transition, 0 if the job was not in the expected status
+     */
+    @Modifying
+    @Query("update EmailJob j set j.status = :to, j.leaseExpiresAt = :leaseExpiresAt, j.updatedAt = :now " +
+           "where j.id = :id and j.status = :from")
+    int claim(@Param("id") Long id, @Param("from") JobStatus from, @Param("to") JobStatus to,
+              @Param("now") LocalDateTime now, @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    @Modifying
+    @Query("update EmailJob j set j.leaseExpiresAt = :leaseExpiresAt where j.id in :ids and j.status = :status")
+    int renewLeases(@Param("ids") Collection<Long> ids, @Param("status") JobStatus status,
+                    @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    /**
+     * Move jobs whose lease has run out, or that never had one, back from one status to another
+     */
+    @Modifying
+    @Query("update EmailJob j set j.status = :to, j.leaseExpiresAt = null, j.updatedAt = :now " +
+           "where j.status = :from and (j.leaseExpiresAt is null or j.leaseExpiresAt < :now)")
+    int releaseExpiredLeases(@Param("from") JobStatus from, @Param("to") JobStatus to, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update EmailJob j set j.status = :to, j.leaseExpiresAt = null, j.updatedAt = :now " +
+           "where j.id in :ids and j.status = :from")
+    int releaseLeases(@Param("ids") Collection<Long> ids, @Param("from") JobStatus from, @Param("to") JobStatus to,
+                      @Param("now") LocalDateTime now);
+
+    long countByStatus(JobStatus status);
+}
@@ -0,0 +1,15 @@
+package ai.email.processor.repository;
+
+import ai.email.processor.entity.MailboxSyncState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface MailboxSyncStateRepository extends JpaRepository<MailboxSyncState, Long> {
+
+    Optional<MailboxSyncState> findByEmailAccountIdAndFolderName(Long emailAccountId, String folderName);
+
+    void deleteByEmailAccountId(Long emailAccountId);
+}
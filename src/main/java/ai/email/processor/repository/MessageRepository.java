@@ -2,18 +2,45 @@ package ai.email.processor.repository;
 
 import ai.email.processor.entity.Conversation;
 import ai.email.processor.entity.Message;
+import ai.email.processor.model.MessageView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
     List<Message> findByConversationOrderByCreatedAtAsc(Conversation conversation);
 
-    Optional<Message> findByEmailMessageId(String emailMessageId);
+    List<Message> findByConversationOrderByCreatedAtDesc(Conversation conversation, Pageable pageable);
 
-    boolean existsByEmailMessageId(String emailMessageId);
+    /**
+     * First page of a conversation's messages, oldest first
+     */
+    @Query("select new ai.email.processor.model.MessageView(m.id, m.conversation.id, m.role, m.content, " +
+           "m.emailSubject, m.createdAt) from Message m where m.conversation.id = :conversationId " +
+           "order by m.createdAt asc, m.id asc")
+    List<MessageView> findViews(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    /**
+     * Page following the message (createdAt, id), by keyset instead of offset
+     */
+    @Query("select new ai.email.processor.model.MessageView(m.id, m.conversation.id, m.role, m.content, " +
+           "m.emailSubject, m.createdAt) from Message m where m.conversation.id = :conversationId " +
+           "and (m.createdAt > :createdAt or (m.createdAt = :createdAt and m.id > :id)) " +
+           "order by m.createdAt asc, m.id asc")
+    List<MessageView> findViewsAfter(@Param("conversationId") Long conversationId,
+                                     @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Message-IDs of the most recently stored messages, newest first
+     */
+    @Query("select m.emailMessageId from Message m where m.emailMessageId is not null order by m.id desc")
+    List<String> findRecentEmailMessageIds(Pageable pageable);
 }
@@ -0,0 +1,26 @@
+package ai.email.processor.repository;
+
+import ai.email.processor.entity.OutboundEmail;
+import ai.email.processor.entity.OutboundEmail.OutboundStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboundEmailRepository extends JpaRepository<OutboundEmail, Long> {
+
+    /**
+     * Next batch of pending emails that are due, longest waiting first, so a large
+     * backlog on one account can't keep other accounts' replies out of every batch
+     */
+    @Query("select o from OutboundEmail o join fetch o.emailAccount " +
+           "where o.status = :status and o.nextAttemptAt <= :now order by o.nextAttemptAt, o.id")
+    List<OutboundEmail> findDue(@Param("status") OutboundStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByStatus(OutboundStatus status);
+}
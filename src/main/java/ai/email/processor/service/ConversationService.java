@@ -3,8 +3,21 @@ package ai.email.processor.service;
 import ai.email.processor.entity.Conversation;
 import ai.email.processor.entity.EmailAccount;
 import ai.email.processor.entity.Message;
+import ai.email.processor.llm.ConversationContextBuilder;
+import ai.email.processor.llm.ConversationContextBuilder.ConversationContext;
+import ai.email.processor.llm.LlmDispatcher;
+import ai.email.processor.llm.ResponseCache;
+import ai.email.processor.model.ConversationSummary;
+import ai.email.processor.model.CursorPage;
+import ai.email.processor.model.IncomingEmail;
+import ai.email.processor.model.MessageView;
+import ai.email.processor.model.PageCursor;
 import ai.email.processor.repository.ConversationRepository;
 import ai.email.processor.repository.MessageRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
@@ -12,31 +25,98 @@ import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Conversations and their messages, plus reply generation.
+ * Generation never runs inside a database transaction: the history is read in a
+ * short read-only transaction, the connection goes back to the pool for the
+ * duration of the model call, and the reply is persisted afterwards.
+ */
 @Service
-@Transactional
 public class ConversationService {
 
     private static final Logger logger = LoggerFactory.getLogger(ConversationService.class);
 
+    // Unique index from V2__query_indexes.sql
+    private static final String MESSAGE_ID_INDEX = "uk_messages_email_message_id";
+
+    // SQL standard SQLState for a unique constraint violation, used by H2 and PostgreSQL alike
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private static final String PROMPT_PREAMBLE =
+        "You are a helpful AI assistant responding to emails. Previous conversation:\n\n";
+    private static final String PROMPT_INSTRUCTION =
+        "Please respond to the latest message in a helpful and professional manner.";
+
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
     private final ChatClient chatClient;
+    private final LlmDispatcher llmDispatcher;
+    private final ConversationContextBuilder contextBuilder;
+    private final ResponseCache responseCache;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer timeToFirstToken;
+    private final Timer generationTime;
+    private final DistributionSummary tokensPerSecond;
+
+    // Hard cap on a single generation, from the moment Ollama accepts the request
+    @Value("${ai.email.chat.llm.deadline:120s}")
+    private Duration generationDeadline;
+
+    // Replies are cut off at this length so a rambling model can't run forever
+    @Value("${ai.email.chat.llm.max-response-chars:8000}")
+    private int maxResponseChars;
 
     public ConversationService(ConversationRepository conversationRepository,
                               MessageRepository messageRepository,
-                              OllamaChatModel ollamaChatModel) {
+                              OllamaChatModel ollamaChatModel,
+                              LlmDispatcher llmDispatcher,
+                              ConversationContextBuilder contextBuilder,
+                              ResponseCache responseCache,
+                              MeterRegistry meterRegistry,
+                              PlatformTransactionManager transactionManager) {
         this.conversationRepository = conversationRepository;
         this.messageRepository = messageRepository;
         this.chatClient = ChatClient.builder(ollamaChatModel).build();
+        this.llmDispatcher = llmDispatcher;
+        this.contextBuilder = contextBuilder;
+        this.responseCache = responseCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.timeToFirstToken = Timer.builder("llm.generation.ttft")
+            .description("Time from sending the prompt to the first streamed token")
+            .register(meterRegistry);
+        this.generationTime = Timer.builder("llm.generation.duration")
+            .description("Total time spent streaming a reply")
+            .register(meterRegistry);
+        this.tokensPerSecond = DistributionSummary.builder("llm.generation.tokens.per.second")
+            .description("Streamed chunks per second after the first token")
+            .register(meterRegistry);
     }
 
+    @Transactional
     public Conversation getOrCreateConversation(EmailAccount emailAccount, String participantEmail) {
         Optional<Conversation> existing = conversationRepository
             .findByEmailAccountAndParticipantEmail(emailAccount, participantEmail);
@@ -53,67 +133,104 @@ public class ConversationService {
         }
     }
 
+    /**
+     * Store an incoming message. The unique index on email_message_id rejects a
+     * Message-ID that is already stored, failing the surrounding transaction with a
+     * DataIntegrityViolationException; see {@link #isDuplicateMessage}.
+     */
+    @Transactional
     public Message addUserMessage(Conversation conversation, String content, String subject, String messageId) {
-        // Check if message already exists (prevent duplicates)
-        if (messageId != null && messageRepository.existsByEmailMessageId(messageId)) {
-            logger.warn("Message with ID {} already exists, skipping duplicate", messageId);
-            return messageRepository.findByEmailMessageId(messageId).orElseThrow();
-        }
-
         logger.debug("Adding user message to conversation {}", conversation.getId());
         Message message = new Message(content, Message.MessageRole.USER, subject);
         message.setEmailMessageId(messageId);
-        conversation.addMessage(message);
-
-        messageRepository.save(message);
-        conversationRepository.save(conversation);
+        appendMessage(conversation.getId(), message);
         logger.debug("✓ User message saved (ID: {})", message.getId());
 
         return message;
     }
 
-    public String generateAIResponse(Conversation conversation, String userMessage) {
-        logger.info("Generating AI response for conversation {}", conversation.getId());
-
-        // Build context from conversation history
-        List<Message> history = messageRepository.findByConversationOrderByCreatedAtAsc(conversation);
-        logger.debug("Conversation history: {} messages", history.size());
+    /**
+     * Store several incoming messages for one account, creating conversations as
+     * needed. The inserts go out as JDBC batches when the transaction flushes, and
+     * each conversation's lastMessageAt is bumped once.
+     * @param contents the text to store for each email, in the same order
+     * @return the stored messages, in the order of the emails
+     */
+    @Transactional
+    public List<Message> addUserMessages(EmailAccount emailAccount, List<IncomingEmail> emails, List<String> contents) {
+        Map<String, Conversation> conversations = new HashMap<>();
+        List<Message> messages = new ArrayList<>(emails.size());
+        for (int i = 0; i < emails.size(); i++) {
+            IncomingEmail email = emails.get(i);
+            Conversation conversation = conversations.computeIfAbsent(email.senderEmail(),
+                sender -> getOrCreateConversation(emailAccount, sender));
+            Message message = new Message(contents.get(i), Message.MessageRole.USER, email.subject());
+            message.setEmailMessageId(email.messageId());
+            message.setConversation(conversation);
+            messages.add(message);
+        }
+        messageRepository.saveAll(messages);
 
-        // Build the prompt with conversation context
-        var promptBuilder = new StringBuilder();
-        promptBuilder.append("You are a helpful AI assistant responding to emails. ");
-        promptBuilder.append("Previous conversation:\n\n");
+        LocalDateTime now = LocalDateTime.now();
+        conversations.values().forEach(conversation -> conversationRepository.updateLastMessageAt(conversation.getId(), now));
+        logger.debug("✓ {} user message(s) saved across {} conversation(s)", messages.size(), conversations.size());
+        return messages;
+    }
 
-        for (Message msg : history) {
-            if (msg.getRole() == Message.MessageRole.USER) {
-                promptBuilder.append("User: ").append(msg.getContent()).append("\n\n");
-            } else {
-                promptBuilder.append("Assistant: ").append(msg.getContent()).append("\n\n");
+    /**
+     * Whether the error is the unique index rejecting an already stored Message-ID.
+     * Goes by the SQLState and the constraint name that Hibernate's dialect extracts,
+     * not by the wording of the driver's message; other unique violations, such as
+     * a conversation created concurrently, are not duplicates.
+     */
+    public static boolean isDuplicateMessage(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                String constraint = violation.getConstraintName();
+                // H2 reports the name qualified with its schema, and in upper case
+                return UNIQUE_VIOLATION.equals(violation.getSQLState()) && constraint != null
+                    && MESSAGE_ID_INDEX.equalsIgnoreCase(constraint.substring(constraint.lastIndexOf('.') + 1));
             }
         }
+        return false;
+    }
 
-        promptBuilder.append("Please respond to the latest message in a helpful and professional manner.");
+    /**
+     * Generate a reply without storing it, waiting for a slot on the Ollama server
+     * in the given lane. Must not be called inside a transaction, or the caller's
+     * connection stays checked out for the whole model call.
+     */
+    public String generateResponse(Conversation conversation, String userMessage, LlmDispatcher.Priority priority) {
+        logger.info("Generating AI response for conversation {}", conversation.getId());
+
+        Long accountId = conversation.getEmailAccount().getId();
+        boolean stateless = responseCache.isStateless(accountId);
+        SystemPrompt prompt = readOnlyTransaction.execute(status -> buildSystemPrompt(conversation, userMessage, stateless));
+        String systemPrompt = prompt.text();
+        logger.debug("Prompt length: {} characters", systemPrompt.length());
 
-        logger.debug("Prompt length: {} characters", promptBuilder.length());
+        // Without history the reply depends only on the question, so identical questions can share it
+        String cacheKey = responseCache.isEnabled() && prompt.historyFree()
+            ? responseCache.key(systemPrompt, userMessage) : null;
+        if (cacheKey != null) {
+            Optional<String> cached = responseCache.get(cacheKey);
+            if (cached.isPresent()) {
+                logger.info("✓ Answered conversation {} from the response cache", conversation.getId());
+                return cached.get();
+            }
+        }
         logger.debug("Calling Ollama API...");
 
         try {
-            // Generate response using Ollama
-            String response = chatClient.prompt()
-                .system(promptBuilder.toString())
-                .user(userMessage)
-                .call()
-                .content();
+            // Generate response using Ollama, queued behind other accounts' calls
+            String response = llmDispatcher.execute(accountId, priority, () ->
+                streamResponse(conversation.getId(), systemPrompt, userMessage));
 
             logger.info("✓ Received response from Ollama ({} characters)", response.length());
-
-            // Save AI response to database
-            Message aiMessage = new Message(response, Message.MessageRole.ASSISTANT);
-            conversation.addMessage(aiMessage);
-            messageRepository.save(aiMessage);
-            conversationRepository.save(conversation);
-            logger.debug("✓ AI response saved to database (Message ID: {})", aiMessage.getId());
-
+            // Replies cut off at the length cap are not worth repeating
+            if (cacheKey != null && response.length() < maxResponseChars) {
+                responseCache.put(cacheKey, response);
+            }
             return response;
         } catch (Exception e) {
             logger.error("✗ Failed to generate AI response from Ollama", e);
@@ -125,15 +242,161 @@ public class ConversationService {
         }
     }
 
-    public List<Conversation> getConversationsByAccount(EmailAccount emailAccount) {
-        return conversationRepository.findByEmailAccountOrderByLastMessageAtDesc(emailAccount);
+    /**
+     * Store a generated reply. Joins the caller's transaction so it can be
+     * committed together with other state, such as the job that asked for it.
+     */
+    @Transactional
+    public Message saveAssistantMessage(Conversation conversation, String content) {
+        Message aiMessage = new Message(content, Message.MessageRole.ASSISTANT);
+        appendMessage(conversation.getId(), aiMessage);
+        logger.debug("✓ AI response saved to database (Message ID: {})", aiMessage.getId());
+        return aiMessage;
+    }
+
+    /**
+     * Insert the message against a reference to its conversation and bump
+     * lastMessageAt with a single UPDATE, without loading the conversation or its
+     * messages. Costs the same however long the thread is.
+     */
+    private void appendMessage(Long conversationId, Message message) {
+        message.setConversation(conversationRepository.getReferenceById(conversationId));
+        messageRepository.save(message);
+        conversationRepository.updateLastMessageAt(conversationId, LocalDateTime.now());
     }
 
-    public Optional<Conversation> getConversationById(Long id) {
-        return conversationRepository.findById(id);
+    /**
+     * @param historyFree whether the prompt carries nothing from earlier turns, so
+     *                    the reply depends only on the latest message
+     */
+    private record SystemPrompt(String text, boolean historyFree) {
     }
 
-    public List<Message> getConversationMessages(Conversation conversation) {
-        return messageRepository.findByConversationOrderByCreatedAtAsc(conversation);
+    private SystemPrompt buildSystemPrompt(Conversation conversation, String userMessage, boolean stateless) {
+        List<Message> history;
+        if (stateless) {
+            // Just the message being answered, which is what a first message's history holds too
+            history = List.of(new Message(userMessage, Message.MessageRole.USER));
+            logger.debug("Account answers without history, skipping conversation context");
+        } else {
+            // Build context from the newest part of the conversation history
+            ConversationContext context = contextBuilder.build(conversation, userMessage);
+            history = context.history();
+            logger.debug("Conversation history: {} messages (~{} tokens{})",
+                history.size(), context.estimatedTokens(), context.truncated() ? ", older messages dropped" : "");
+        }
+
+        // Build the prompt with conversation context
+        var promptBuilder = new StringBuilder();
+        promptBuilder.append(PROMPT_PREAMBLE);
+
+        boolean earlierTurns = false;
+        for (int i = 0; i < history.size(); i++) {
+            Message msg = history.get(i);
+            if (msg.getRole() == Message.MessageRole.USER) {
+                promptBuilder.append("User: ").append(msg.getContent()).append("\n\n");
+            } else {
+                promptBuilder.append("Assistant: ").append(msg.getContent()).append("\n\n");
+            }
+            // The newest message is the one being answered; anything before it is history
+            earlierTurns |= i < history.size() - 1;
+        }
+
+        promptBuilder.append(PROMPT_INSTRUCTION);
+        return new SystemPrompt(promptBuilder.toString(), !earlierTurns);
+    }
+
+    /**
+     * Stream the reply from Ollama, stopping at maxResponseChars and failing if the
+     * model hasn't finished within the deadline
+     */
+    private String streamResponse(Long conversationId, String systemPrompt, String userMessage) {
+        StringBuilder response = new StringBuilder();
+        AtomicInteger chunks = new AtomicInteger();
+        AtomicLong firstTokenAt = new AtomicLong();
+        AtomicBoolean finished = new AtomicBoolean();
+        long startedAt = System.nanoTime();
+
+        chatClient.prompt()
+            .system(systemPrompt)
+            .user(userMessage)
+            .stream()
+            .content()
+            .doOnComplete(() -> finished.set(true))
+            .takeUntil(chunk -> {
+                if (firstTokenAt.compareAndSet(0, System.nanoTime())) {
+                    timeToFirstToken.record(firstTokenAt.get() - startedAt, TimeUnit.NANOSECONDS);
+                }
+                chunks.incrementAndGet();
+                response.append(chunk);
+                return response.length() >= maxResponseChars;
+            })
+            // Completes (and cancels the Ollama request) once the deadline passes
+            .take(generationDeadline)
+            .blockLast();
+
+        long endedAt = System.nanoTime();
+        generationTime.record(endedAt - startedAt, TimeUnit.NANOSECONDS);
+        if (firstTokenAt.get() != 0 && endedAt > firstTokenAt.get()) {
+            tokensPerSecond.record(chunks.get() * 1_000_000_000.0 / (endedAt - firstTokenAt.get()));
+        }
+
+        if (response.length() >= maxResponseChars) {
+            logger.warn("Response for conversation {} cut off at {} characters", conversationId, maxResponseChars);
+            response.setLength(maxResponseChars);
+        } else if (!finished.get()) {
+            throw new IllegalStateException(new TimeoutException(String.format(
+                "Ollama did not finish within %ds (%d characters received)", generationDeadline.toSeconds(), response.length())));
+        }
+        logger.debug("Streamed {} chunks in {} ms", chunks.get(), TimeUnit.NANOSECONDS.toMillis(endedAt - startedAt));
+        return response.toString();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ConversationSummary> getConversationSummary(Long id) {
+        return conversationRepository.findSummaryById(id);
+    }
+
+    /**
+     * An account's conversations, most recently active first
+     * @param cursor nextCursor from the previous page, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ConversationSummary> getConversationSummaries(Long accountId, String cursor, int limit) {
+        // One extra row tells us whether there is a next page
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<ConversationSummary> rows = cursor == null
+            ? conversationRepository.findSummaries(accountId, page)
+            : findSummariesAfter(accountId, PageCursor.decode(cursor), page);
+        return toPage(rows, limit, summary -> new PageCursor(summary.lastMessageAt(), summary.id()));
+    }
+
+    /**
+     * A conversation's messages, oldest first
+     * @param cursor nextCursor from the previous page, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<MessageView> getMessageViews(Long conversationId, String cursor, int limit) {
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<MessageView> rows;
+        if (cursor == null) {
+            rows = messageRepository.findViews(conversationId, page);
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            rows = messageRepository.findViewsAfter(conversationId, after.timestamp(), after.id(), page);
+        }
+        return toPage(rows, limit, message -> new PageCursor(message.createdAt(), message.id()));
+    }
+
+    private List<ConversationSummary> findSummariesAfter(Long accountId, PageCursor after, PageRequest page) {
+        return conversationRepository.findSummariesAfter(accountId, after.timestamp(), after.id(), page);
+    }
+
+    private static <T> CursorPage<T> toPage(List<T> rows, int limit, Function<T, PageCursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(List.copyOf(items), cursorOf.apply(items.get(limit - 1)).encode());
     }
 }
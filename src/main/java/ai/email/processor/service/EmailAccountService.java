@@ -1,7 +1,10 @@
 package ai.email.processor.service;
 
 import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.model.EmailAccountChangedEvent;
 import ai.email.processor.repository.EmailAccountRepository;
+import ai.email.processor.repository.MailboxSyncStateRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,9 +16,15 @@ import java.util.Optional;
 public class EmailAccountService {
 
     private final EmailAccountRepository emailAccountRepository;
+    private final MailboxSyncStateRepository syncStateRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public EmailAccountService(EmailAccountRepository emailAccountRepository) {
+    public EmailAccountService(EmailAccountRepository emailAccountRepository,
+                               MailboxSyncStateRepository syncStateRepository,
+                               ApplicationEventPublisher eventPublisher) {
         this.emailAccountRepository = emailAccountRepository;
+        this.syncStateRepository = syncStateRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public EmailAccount createAccount(EmailAccount account) {
@@ -43,14 +52,18 @@ public class EmailAccountService {
         account.setUseSSL(updatedAccount.isUseSSL());
         account.setActive(updatedAccount.isActive());
 
-        return emailAccountRepository.save(account);
+        EmailAccount saved = emailAccountRepository.save(account);
+        eventPublisher.publishEvent(new EmailAccountChangedEvent(id));
+        return saved;
     }
 
     public void deleteAccount(Long id) {
         if (!emailAccountRepository.existsById(id)) {
             throw new IllegalArgumentException("Email account not found: " + id);
         }
+        syncStateRepository.deleteByEmailAccountId(id);
         emailAccountRepository.deleteById(id);
+        eventPublisher.publishEvent(new EmailAccountChangedEvent(id));
     }
 
     public Optional<EmailAccount> getAccount(Long id) {
@@ -74,5 +87,6 @@ public class EmailAccountService {
             .orElseThrow(() -> new IllegalArgumentException("Email account not found: " + id));
         account.setActive(active);
         emailAccountRepository.save(account);
+        eventPublisher.publishEvent(new EmailAccountChangedEvent(id));
     }
 }
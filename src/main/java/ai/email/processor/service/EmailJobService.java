@@ -0,0 +1,409 @@
+package ai.email.processor.service;
+
+import ai.email.processor.entity.Conversation;
+import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.entity.EmailJob;
+import ai.email.processor.entity.EmailJob.JobStatus;
+import ai.email.processor.entity.Message;
+import ai.email.processor.llm.LlmDispatcher;
+import ai.email.processor.mail.MessageIdFilter;
+import ai.email.processor.mail.MessageTextNormalizer;
+import ai.email.processor.model.IncomingEmail;
+import ai.email.processor.repository.EmailJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Durable pipeline for incoming AI requests: ingested → generating → sending → done/failed.
+ * Ingestion only persists the user message and a job row; LLM generation runs on its
+ * own worker pool and hands the reply to the outbox, so neither a slow model nor a
+ * slow SMTP server holds up IMAP ingestion, and unfinished jobs are picked up again
+ * after a restart. A job being generated is leased to the instance working on it,
+ * which renews the lease on every sweep; another instance only takes it back once
+ * the lease has run out.
+ */
+@Service
+public class EmailJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailJobService.class);
+
+    private final EmailJobRepository jobRepository;
+    private final ConversationService conversationService;
+    private final OutboxService outboxService;
+    private final MessageIdFilter messageIdFilter;
+    private final MessageTextNormalizer textNormalizer;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter duplicatesFiltered;
+    private final Counter duplicatesRejected;
+
+    @Value("${ai.email.chat.jobs.generation-workers:4}")
+    private int generationWorkers;
+
+    @Value("${ai.email.chat.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${ai.email.chat.jobs.retry-backoff:30s}")
+    private Duration retryBackoff;
+
+    // Emails written per transaction by ingestAll
+    @Value("${ai.email.chat.jobs.ingest-chunk-size:50}")
+    private int ingestChunkSize;
+
+    @Value("${ai.email.chat.jobs.generation-lease:2m}")
+    private Duration generationLease;
+
+    private ThreadPoolExecutor generationExecutor;
+
+    // Jobs currently queued or running in this process, so the sweeper doesn't submit them twice
+    private final Set<Long> scheduledJobs = ConcurrentHashMap.newKeySet();
+    // Jobs this process has claimed for generation, whose leases it renews
+    private final Set<Long> generatingJobs = ConcurrentHashMap.newKeySet();
+
+    // Fair queuing in front of the workers: an account's queued jobs get consecutive
+    // rounds and workers take the lowest round first, so one account's backlog takes
+    // turns with everyone else's instead of filling every worker
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Map<Long, Long> lastRounds = new HashMap<>();
+    private long currentRound;
+    private long sequence;
+
+    public EmailJobService(EmailJobRepository jobRepository,
+                           ConversationService conversationService,
+                           OutboxService outboxService,
+                           MessageIdFilter messageIdFilter,
+                           MessageTextNormalizer textNormalizer,
+                           MeterRegistry meterRegistry,
+                           PlatformTransactionManager transactionManager) {
+        this.jobRepository = jobRepository;
+        this.conversationService = conversationService;
+        this.outboxService = outboxService;
+        this.messageIdFilter = messageIdFilter;
+        this.textNormalizer = textNormalizer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.duplicatesFiltered = Counter.builder("email.ingest.duplicates")
+            .description("Re-delivered messages skipped at ingestion")
+            .tag("source", "filter")
+            .register(meterRegistry);
+        this.duplicatesRejected = Counter.builder("email.ingest.duplicates")
+            .description("Re-delivered messages skipped at ingestion")
+            .tag("source", "constraint")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void startWorkers() {
+        int workers = Math.max(1, generationWorkers);
+        generationExecutor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(), Thread.ofVirtual().name("job-generate-", 0).factory());
+        // Started up front so every job goes through the queue, and so through its ordering
+        generationExecutor.prestartAllCoreThreads();
+    }
+
+    @PreDestroy
+    void stopWorkers() throws InterruptedException {
+        generationExecutor.shutdownNow();
+        generationExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        // Hand unfinished jobs back now instead of leaving them until their leases run out
+        if (!generatingJobs.isEmpty()) {
+            Integer released = transactionTemplate.execute(status -> jobRepository.releaseLeases(
+                Set.copyOf(generatingJobs), JobStatus.GENERATING, JobStatus.INGESTED, LocalDateTime.now()));
+            logger.info("Released {} job(s) interrupted during generation", released);
+        }
+    }
+
+    /**
+     * Store the user message and queue a job for it, in one transaction. The content
+     * is stored as given; mail bodies go through the text normalizer first.
+     * @return the new job id, or null if the message was already ingested
+     */
+    public Long ingest(EmailAccount account, String senderEmail, String subject, String content, String messageId) {
+        // Recently seen ids are answered from memory; anything else is left to the unique index
+        if (messageIdFilter.contains(messageId)) {
+            logger.debug("Message with ID {} already ingested, skipping duplicate", messageId);
+            duplicatesFiltered.increment();
+            return null;
+        }
+
+        Long jobId;
+        try {
+            jobId = transactionTemplate.execute(status -> {
+                logger.debug("Getting or creating conversation with {}", senderEmail);
+                Conversation conversation = conversationService.getOrCreateConversation(account, senderEmail);
+                conversationService.addUserMessage(conversation, content, subject, messageId);
+
+                EmailJob job = jobRepository.save(new EmailJob(account, conversation, senderEmail, subject, content, messageId));
+                logger.debug("✓ Job {} queued for conversation {}", job.getId(), conversation.getId());
+                return job.getId();
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!ConversationService.isDuplicateMessage(e)) {
+                throw e;
+            }
+            logger.warn("Message with ID {} already ingested, skipping duplicate", messageId);
+            messageIdFilter.add(messageId);
+            duplicatesRejected.increment();
+            return null;
+        }
+
+        messageIdFilter.add(messageId);
+        submit(account.getId(), jobId);
+        return jobId;
+    }
+
+    /**
+     * Store a batch of incoming emails and queue their jobs, a chunk per transaction,
+     * so the inserts go out as JDBC batches instead of a round trip per row. If a
+     * chunk is rejected, usually because the filter had forgotten an id that is
+     * already stored, its emails are ingested one by one instead.
+     * @return the emails that could not be stored; they should be retried later
+     */
+    public List<IncomingEmail> ingestAll(EmailAccount account, List<IncomingEmail> emails) {
+        // Skip known ids, and keep only the first of any repeated within the batch
+        Map<String, IncomingEmail> byMessageId = new LinkedHashMap<>();
+        List<IncomingEmail> fresh = new ArrayList<>();
+        for (IncomingEmail email : emails) {
+            if (messageIdFilter.contains(email.messageId())) {
+                duplicatesFiltered.increment();
+            } else if (email.messageId() == null) {
+                fresh.add(email);
+            } else {
+                byMessageId.putIfAbsent(email.messageId(), email);
+            }
+        }
+        fresh.addAll(byMessageId.values());
+        if (fresh.size() <= 1) {
+            return ingestEach(account, fresh);
+        }
+
+        // Bodies only become Strings a chunk at a time, so a burst of large mail is never all on the heap
+        List<IncomingEmail> failed = new ArrayList<>();
+        int chunkSize = Math.max(1, ingestChunkSize);
+        for (int from = 0; from < fresh.size(); from += chunkSize) {
+            failed.addAll(ingestChunk(account, fresh.subList(from, Math.min(from + chunkSize, fresh.size()))));
+        }
+        return failed;
+    }
+
+    private List<IncomingEmail> ingestChunk(EmailAccount account, List<IncomingEmail> emails) {
+        List<String> contents = emails.stream().map(email -> textNormalizer.normalize(email.body())).toList();
+        List<Long> jobIds;
+        try {
+            jobIds = transactionTemplate.execute(status -> {
+                List<Message> messages = conversationService.addUserMessages(account, emails, contents);
+                List<EmailJob> jobs = new ArrayList<>(messages.size());
+                for (int i = 0; i < messages.size(); i++) {
+                    IncomingEmail email = emails.get(i);
+                    Message message = messages.get(i);
+                    jobs.add(new EmailJob(account, message.getConversation(), email.senderEmail(),
+                        email.subject(), message.getContent(), email.messageId()));
+                }
+                return jobRepository.saveAll(jobs).stream().map(EmailJob::getId).toList();
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Batch of {} message(s) for {} was rejected ({}), ingesting one by one",
+                emails.size(), account.getEmailAddress(), e.getMessage());
+            return ingestEach(account, emails, contents);
+        }
+
+        emails.forEach(email -> messageIdFilter.add(email.messageId()));
+        logger.info("✓ {} AI request(s) for {} queued as jobs {}", jobIds.size(), account.getEmailAddress(), jobIds);
+        jobIds.forEach(jobId -> submit(account.getId(), jobId));
+        return List.of();
+    }
+
+    private List<IncomingEmail> ingestEach(EmailAccount account, List<IncomingEmail> emails) {
+        return ingestEach(account, emails, emails.stream().map(email -> textNormalizer.normalize(email.body())).toList());
+    }
+
+    private List<IncomingEmail> ingestEach(EmailAccount account, List<IncomingEmail> emails, List<String> contents) {
+        List<IncomingEmail> failed = new ArrayList<>();
+        for (int i = 0; i < emails.size(); i++) {
+            IncomingEmail email = emails.get(i);
+            try {
+                Long jobId = ingest(account, email.senderEmail(), email.subject(), contents.get(i), email.messageId());
+                if (jobId != null) {
+                    logger.info("✓ AI request from {} queued as job {}", email.senderEmail(), jobId);
+                }
+            } catch (Exception e) {
+                logger.error("✗ Failed to store message {} from {}: {}", email.messageId(), email.senderEmail(), e.getMessage(), e);
+                failed.add(email);
+            }
+        }
+        return failed;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverJobs() {
+        sweepDueJobs();
+    }
+
+    /**
+     * Renew the leases of this instance's jobs in generation, re-queue jobs whose
+     * instance went away without finishing them, and pick up jobs that are due for a
+     * retry or were never handed to a worker. Jobs in SENDING are owned by the outbox.
+     */
+    @Scheduled(fixedDelayString = "${ai.email.chat.jobs.sweep-interval:10000}")
+    public void sweepDueJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer recovered = transactionTemplate.execute(status -> {
+            if (!generatingJobs.isEmpty()) {
+                jobRepository.renewLeases(Set.copyOf(generatingJobs), JobStatus.GENERATING, now.plus(generationLease));
+            }
+            return jobRepository.releaseExpiredLeases(JobStatus.GENERATING, JobStatus.INGESTED, now);
+        });
+        if (recovered != null && recovered > 0) {
+            logger.warn("Recovered {} job(s) whose generation lease expired", recovered);
+        }
+
+        jobRepository.findDueJobs(JobStatus.INGESTED, now)
+            .forEach(job -> submit(job.emailAccountId(), job.id()));
+    }
+
+    private void submit(Long accountId, Long jobId) {
+        if (!scheduledJobs.add(jobId)) {
+            return;
+        }
+        try {
+            generationExecutor.execute(newTask(accountId, jobId));
+        } catch (RejectedExecutionException e) {
+            // Shutting down - the job stays in the database and is recovered on restart
+            scheduledJobs.remove(jobId);
+        }
+    }
+
+    private GenerationTask newTask(Long accountId, Long jobId) {
+        queueLock.lock();
+        try {
+            // An account that had nothing queued starts at the current round, not behind its old backlog
+            long round = Math.max(currentRound, lastRounds.getOrDefault(accountId, -1L) + 1);
+            lastRounds.put(accountId, round);
+            return new GenerationTask(jobId, round, sequence++);
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private final class GenerationTask implements Runnable, Comparable<GenerationTask> {
+
+        private final Long jobId;
+        private final long round;
+        private final long sequence;
+
+        private GenerationTask(Long jobId, long round, long sequence) {
+            this.jobId = jobId;
+            this.round = round;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            queueLock.lock();
+            try {
+                currentRound = Math.max(currentRound, round);
+            } finally {
+                queueLock.unlock();
+            }
+            try {
+                generate(jobId);
+            } finally {
+                scheduledJobs.remove(jobId);
+            }
+        }
+
+        @Override
+        public int compareTo(GenerationTask other) {
+            int byRound = Long.compare(round, other.round);
+            return byRound != 0 ? byRound : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private void generate(Long jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        Boolean claimed = transactionTemplate.execute(status -> jobRepository.claim(
+            jobId, JobStatus.INGESTED, JobStatus.GENERATING, now, now.plus(generationLease)) == 1);
+        if (!Boolean.TRUE.equals(claimed)) {
+            return;
+        }
+
+        generatingJobs.add(jobId);
+        try {
+            // Read the job, then call the model with no transaction or connection held
+            EmailJob job = jobRepository.findWithAssociationsById(jobId).orElseThrow();
+            // Retries go to the bulk lane so they don't hold up fresh mail
+            LlmDispatcher.Priority priority = job.getAttempts() > 0 ? LlmDispatcher.Priority.BULK : LlmDispatcher.Priority.NORMAL;
+            logger.info("Generating AI response for job {} using Ollama...", jobId);
+            String aiResponse = conversationService.generateResponse(job.getConversation(), job.getContent(), priority);
+            logger.info("✓ AI response generated for job {} ({} characters)", jobId, aiResponse.length());
+
+            // The reply, its outbox entry and the job's move to SENDING commit together
+            transactionTemplate.executeWithoutResult(status -> {
+                conversationService.saveAssistantMessage(job.getConversation(), aiResponse);
+                outboxService.enqueueReply(job.getEmailAccount(), jobId, job.getSenderEmail(), job.getSubject(), aiResponse);
+                EmailJob current = jobRepository.findById(jobId).orElseThrow();
+                current.setResponse(aiResponse);
+                current.setStatus(JobStatus.SENDING);
+                current.setLeaseExpiresAt(null);
+            });
+        } catch (Exception e) {
+            recordFailure(jobId, e);
+        } finally {
+            generatingJobs.remove(jobId);
+        }
+    }
+
+    /**
+     * Put the job back into INGESTED with exponential backoff, or mark it
+     * FAILED once it has used up its attempts
+     */
+    private void recordFailure(Long jobId, Exception error) {
+        logger.error("✗ Job {} failed during generation: {}", jobId, error.getMessage(), error);
+        transactionTemplate.executeWithoutResult(status -> jobRepository.findById(jobId).ifPresent(job -> {
+            job.setAttempts(job.getAttempts() + 1);
+            job.setLeaseExpiresAt(null);
+            job.setLastError(truncate(error.getMessage(), 1024));
+            if (job.getAttempts() >= maxAttempts) {
+                job.setStatus(JobStatus.FAILED);
+                logger.error("✗ Job {} gave up after {} attempts", jobId, job.getAttempts());
+            } else {
+                long backoffMillis = retryBackoff.toMillis() << Math.min(job.getAttempts() - 1, 10);
+                job.setStatus(JobStatus.INGESTED);
+                job.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(backoffMillis)));
+            }
+            jobRepository.save(job);
+        }));
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength);
+    }
+}
@@ -1,11 +1,21 @@
 package ai.email.processor.service;
 
-import ai.email.processor.entity.Conversation;
 import ai.email.processor.entity.EmailAccount;
-import ai.email.processor.oauth2.OAuth2Authenticator;
+import ai.email.processor.entity.MailboxSyncState;
+import ai.email.processor.mail.BodyBuffer;
+import ai.email.processor.mail.ImapStorePool;
+import ai.email.processor.mail.MimeTextExtractor;
+import ai.email.processor.model.AccountPollResult;
+import ai.email.processor.model.IncomingEmail;
+import ai.email.processor.model.PollCycleReport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import jakarta.mail.*;
-import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.search.AndTerm;
 import jakarta.mail.search.FlagTerm;
+import jakarta.mail.search.SearchTerm;
+import jakarta.mail.search.SubjectTerm;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,8 +23,26 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Properties;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class EmailReceiverService {
@@ -22,25 +50,68 @@ public class EmailReceiverService {
     private static final Logger logger = LoggerFactory.getLogger(EmailReceiverService.class);
 
     private final EmailAccountService emailAccountService;
-    private final ConversationService conversationService;
-    private final EmailSenderService emailSenderService;
-    private final OAuth2Authenticator oauth2Authenticator;
+    private final EmailJobService emailJobService;
+    private final ImapStorePool imapStorePool;
+    private final MailboxSyncService mailboxSyncService;
+    private final MimeTextExtractor mimeTextExtractor;
+    private final Counter oversizedRequests;
 
     @Value("${ai.email.chat.subject-filter:[AI_REQUEST]}")
     private String subjectFilter;
 
+    @Value("${ai.email.chat.ingestion-mode:poll}")
+    private String ingestionMode;
+
+    @Value("${ai.email.chat.poll.concurrent:true}")
+    private boolean concurrentPolling;
+
+    @Value("${ai.email.chat.poll.max-connections:20}")
+    private int maxConcurrentConnections;
+
+    @Value("${ai.email.chat.poll.cycle-timeout:55s}")
+    private Duration cycleTimeout;
+
+    @Value("${ai.email.chat.poll.max-message-attempts:5}")
+    private int maxMessageAttempts;
+
+    // Messages downloaded, stored and marked read together
+    @Value("${ai.email.chat.jobs.ingest-chunk-size:50}")
+    private int ingestChunkSize;
+
+    // Shared across cycles so stragglers from a timed-out cycle still count against the cap
+    private Semaphore connectionPermits;
+    private final Set<Long> accountsInProgress = ConcurrentHashMap.newKeySet();
+    private final Map<String, FolderSync> folderSyncs = new ConcurrentHashMap<>();
+    private volatile PollCycleReport lastCycleReport;
+
     public EmailReceiverService(EmailAccountService emailAccountService,
-                               ConversationService conversationService,
-                               EmailSenderService emailSenderService,
-                               OAuth2Authenticator oauth2Authenticator) {
+                               EmailJobService emailJobService,
+                               ImapStorePool imapStorePool,
+                               MailboxSyncService mailboxSyncService,
+                               MimeTextExtractor mimeTextExtractor,
+                               MeterRegistry meterRegistry) {
         this.emailAccountService = emailAccountService;
-        this.conversationService = conversationService;
-        this.emailSenderService = emailSenderService;
-        this.oauth2Authenticator = oauth2Authenticator;
+        this.emailJobService = emailJobService;
+        this.imapStorePool = imapStorePool;
+        this.mailboxSyncService = mailboxSyncService;
+        this.mimeTextExtractor = mimeTextExtractor;
+        this.oversizedRequests = Counter.builder("email.ingest.oversized")
+            .description("AI requests left unread because their text is over the size limit")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void initConnectionPermits() {
+        connectionPermits = new Semaphore(Math.max(1, maxConcurrentConnections));
     }
 
     @Scheduled(fixedDelayString = "${ai.email.chat.poll-rate:60000}")
     public void checkEmails() {
+        if (ImapIdleService.IDLE_MODE.equalsIgnoreCase(ingestionMode)) {
+            logger.debug("IMAP IDLE ingestion mode active - skipping scheduled poll");
+            return;
+        }
+
         logger.info("=== Starting email check cycle ===");
         List<EmailAccount> activeAccounts = emailAccountService.getActiveAccounts();
         logger.info("Found {} active email accounts to check", activeAccounts.size());
@@ -49,104 +120,384 @@ public class EmailReceiverService {
             logger.warn("No active email accounts configured! Add accounts through the web UI.");
         }
 
-        for (EmailAccount account : activeAccounts) {
+        Instant startedAt = Instant.now();
+        List<AccountPollResult> results = concurrentPolling
+            ? pollConcurrently(activeAccounts, startedAt.plus(cycleTimeout))
+            : pollSequentially(activeAccounts);
+
+        PollCycleReport report = new PollCycleReport(startedAt,
+            Duration.between(startedAt, Instant.now()).toMillis(), concurrentPolling, results);
+        lastCycleReport = report;
+
+        logger.info("=== Email check cycle completed in {} ms - {} succeeded, {} failed, {} timed out, {} skipped, {} messages ===",
+            report.durationMillis(),
+            report.count(AccountPollResult.Status.SUCCESS),
+            report.count(AccountPollResult.Status.FAILED),
+            report.count(AccountPollResult.Status.TIMED_OUT),
+            report.count(AccountPollResult.Status.SKIPPED),
+            report.messagesProcessed());
+    }
+
+    /**
+     * Report of the most recently completed check cycle, or null before the first cycle
+     */
+    public PollCycleReport getLastCycleReport() {
+        return lastCycleReport;
+    }
+
+    private List<AccountPollResult> pollSequentially(List<EmailAccount> accounts) {
+        List<AccountPollResult> results = new ArrayList<>();
+        for (EmailAccount account : accounts) {
+            if (!accountsInProgress.add(account.getId())) {
+                results.add(skipped(account));
+                continue;
+            }
             try {
-                logger.info("Checking emails for account: {}", account.getEmailAddress());
-                processAccountEmails(account);
-            } catch (Exception e) {
-                logger.error("Error processing emails for account: {}", account.getEmailAddress(), e);
-                logger.error("Error details - Host: {}, Port: {}, SSL: {}",
-                    account.getImapHost(), account.getImapPort(), account.isUseSSL());
+                results.add(pollAccount(account));
+            } finally {
+                accountsInProgress.remove(account.getId());
             }
         }
-        logger.info("=== Email check cycle completed ===");
+        return results;
     }
 
-    private void processAccountEmails(EmailAccount account) throws MessagingException, IOException {
-        logger.debug("Setting up IMAP connection for {}", account.getEmailAddress());
-        logger.debug("IMAP Settings - Host: {}, Port: {}, SSL: {}, Username: {}, AuthType: {}",
-            account.getImapHost(), account.getImapPort(), account.isUseSSL(), account.getUsername(), account.getAuthType());
+    /**
+     * Poll every account on its own virtual thread. The number of simultaneous IMAP
+     * connections is capped by connectionPermits, and accounts that have not finished
+     * by the deadline are reported as timed out instead of holding up the cycle.
+     */
+    private List<AccountPollResult> pollConcurrently(List<EmailAccount> accounts, Instant deadline) {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        Map<EmailAccount, Future<AccountPollResult>> futures = new LinkedHashMap<>();
+        try {
+            for (EmailAccount account : accounts) {
+                futures.put(account, executor.submit(() -> pollAccountWithPermit(account, deadline)));
+            }
 
-        Store store = null;
+            List<AccountPollResult> results = new ArrayList<>();
+            for (Map.Entry<EmailAccount, Future<AccountPollResult>> entry : futures.entrySet()) {
+                results.add(awaitResult(entry.getKey(), entry.getValue(), deadline));
+            }
+            return results;
+        } finally {
+            // Don't wait for stragglers - an IMAP read blocked on a socket ignores interrupts.
+            // Their connections were aborted, and they keep their account marked as in
+            // progress until the read fails, so the next cycle skips it in the meantime.
+            executor.shutdownNow();
+        }
+    }
 
+    private AccountPollResult awaitResult(EmailAccount account, Future<AccountPollResult> future, Instant deadline) {
+        long remainingMillis = Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
         try {
-            logger.debug("Connecting to IMAP server...");
-
-            // Use OAuth2 or basic authentication based on account type
-            if (account.isOAuth2()) {
-                logger.info("Using OAuth2 authentication for {}", account.getEmailAddress());
-                store = oauth2Authenticator.connectImap(account);
-            } else {
-                logger.info("Using basic authentication for {}", account.getEmailAddress());
-                Properties props = new Properties();
-                props.put("mail.store.protocol", account.isUseSSL() ? "imaps" : "imap");
-                props.put("mail.imap.host", account.getImapHost());
-                props.put("mail.imap.port", account.getImapPort());
-                props.put("mail.debug", "false");
-
-                if (account.isUseSSL()) {
-                    props.put("mail.imap.ssl.enable", "true");
-                    props.put("mail.imap.ssl.trust", "*");
-                } else {
-                    props.put("mail.imap.starttls.enable", "true");
-                }
+            return future.get(remainingMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            // Closing the connection makes a read that is blocked on it fail now rather than at the read timeout
+            imapStorePool.abort(account.getId());
+            logger.warn("✗ Account {} did not finish before the cycle deadline", account.getEmailAddress());
+            return AccountPollResult.failure(account.getId(), account.getEmailAddress(),
+                AccountPollResult.Status.TIMED_OUT, cycleTimeout.toMillis(), "Cycle deadline exceeded");
+        } catch (ExecutionException e) {
+            return AccountPollResult.failure(account.getId(), account.getEmailAddress(),
+                AccountPollResult.Status.FAILED, 0, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return AccountPollResult.failure(account.getId(), account.getEmailAddress(),
+                AccountPollResult.Status.FAILED, 0, "Interrupted");
+        }
+    }
 
-                Session session = Session.getInstance(props);
-                store = session.getStore();
-                store.connect(account.getImapHost(), account.getUsername(), account.getPassword());
+    private AccountPollResult pollAccountWithPermit(EmailAccount account, Instant deadline) throws InterruptedException {
+        // Checked before taking a permit, so an account that is skipped doesn't hold one
+        if (!accountsInProgress.add(account.getId())) {
+            return skipped(account);
+        }
+        try {
+            long waitMillis = Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
+            if (!connectionPermits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                return AccountPollResult.failure(account.getId(), account.getEmailAddress(),
+                    AccountPollResult.Status.TIMED_OUT, waitMillis, "No IMAP connection slot available before the deadline");
             }
+            try {
+                return pollAccount(account);
+            } finally {
+                connectionPermits.release();
+            }
+        } finally {
+            accountsInProgress.remove(account.getId());
+        }
+    }
+
+    private AccountPollResult skipped(EmailAccount account) {
+        logger.warn("Skipping {} - still being polled by a previous cycle", account.getEmailAddress());
+        return AccountPollResult.failure(account.getId(), account.getEmailAddress(),
+            AccountPollResult.Status.SKIPPED, 0, "Previous poll still in progress");
+    }
+
+    /**
+     * Poll one account; the caller has marked it as in progress
+     */
+    private AccountPollResult pollAccount(EmailAccount account) {
+        long start = System.currentTimeMillis();
+        try {
+            logger.info("Checking emails for account: {}", account.getEmailAddress());
+            int processed = processAccountEmails(account);
+            return AccountPollResult.success(account.getId(), account.getEmailAddress(),
+                processed, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Error processing emails for account: {}", account.getEmailAddress(), e);
+            logger.error("Error details - Host: {}, Port: {}, SSL: {}",
+                account.getImapHost(), account.getImapPort(), account.isUseSSL());
+            return AccountPollResult.failure(account.getId(), account.getEmailAddress(),
+                AccountPollResult.Status.FAILED, System.currentTimeMillis() - start, e.getMessage());
+        }
+    }
 
-            logger.info("✓ Successfully connected to IMAP server for {}", account.getEmailAddress());
+    private int processAccountEmails(EmailAccount account) throws MessagingException, IOException {
+        return imapStorePool.withInbox(account, inbox -> {
+            logger.debug("✓ INBOX ready for {}. Total messages: {}", account.getEmailAddress(), inbox.getMessageCount());
+            return syncInbox(account, inbox);
+        });
+    }
 
-            logger.debug("Opening INBOX folder...");
-            Folder inbox = store.getFolder("INBOX");
-            inbox.open(Folder.READ_WRITE);
-            logger.info("✓ INBOX opened successfully. Total messages: {}, Unread: {}",
-                inbox.getMessageCount(), inbox.getUnreadMessageCount());
+    /**
+     * Process messages that arrived since the last sync of this folder. Only UIDs
+     * above the stored watermark are fetched, so the cost depends on new mail and
+     * not on mailbox size, and messages read by a person first are still handled.
+     * Syncs of the same folder run one at a time, so two callers (such as the IDLE
+     * catch-up and a new-mail notification) never work from the same watermark.
+     * @return the number of messages processed successfully
+     */
+    int syncInbox(EmailAccount account, Folder inbox) throws MessagingException {
+        if (!(inbox instanceof UIDFolder uidFolder)) {
+            throw new MessagingException("UID sync requires an IMAP folder, got " + inbox.getClass().getName());
+        }
 
-            // Search for unread messages
-            Message[] messages = inbox.search(new FlagTerm(new Flags(Flags.Flag.SEEN), false));
+        FolderSync sync = folderSyncs.computeIfAbsent(account.getId() + "/" + inbox.getFullName(), key -> new FolderSync());
+        sync.lock.lock();
+        try {
+            return syncInbox(account, inbox, uidFolder, sync);
+        } finally {
+            sync.lock.unlock();
+        }
+    }
+
+    private int syncInbox(EmailAccount account, Folder inbox, UIDFolder uidFolder, FolderSync sync) throws MessagingException {
+        long uidValidity = uidFolder.getUIDValidity();
+        MailboxSyncState state = mailboxSyncService.getState(account.getId(), inbox.getFullName());
 
-            logger.info("Found {} unread messages for account: {}", messages.length, account.getEmailAddress());
+        if (!state.isInitialized() || state.getUidValidity() != uidValidity) {
+            sync.failures.clear();
+            return resyncBaseline(account, inbox, uidFolder, state, uidValidity, sync);
+        }
 
-            if (messages.length == 0) {
-                logger.debug("No unread messages to process for {}", account.getEmailAddress());
+        // "UID n+1:*" always matches the newest message, even when its UID is <= n
+        Message[] fetched = uidFolder.getMessagesByUID(state.getLastUid() + 1, UIDFolder.MAXUID);
+        FetchProfile uidProfile = new FetchProfile();
+        uidProfile.add(UIDFolder.FetchProfileItem.UID);
+        inbox.fetch(fetched, uidProfile);
+
+        List<Message> pending = new ArrayList<>();
+        List<Long> pendingUids = new ArrayList<>();
+        long maxUid = state.getLastUid();
+        for (Message message : fetched) {
+            long uid = uidFolder.getUID(message);
+            maxUid = Math.max(maxUid, uid);
+            if (!state.isProcessed(uid)) {
+                pending.add(message);
+                pendingUids.add(uid);
             }
+        }
+        // UIDs the server skipped or whose messages are gone will never be returned
+        long lastUid = state.getLastUid();
+        state.markProcessedExcept(maxUid, pendingUids);
+
+        // Let the server apply the subject filter, then prefetch only the matches
+        Set<Message> matches = Set.of(searchMatching(inbox, pending.toArray(new Message[0]),
+            new FlagTerm(new Flags(Flags.Flag.DELETED), false)));
+
+        logger.info("Found {} new messages above UID {} for account: {} ({} match the subject filter)",
+            pending.size(), lastUid, account.getEmailAddress(), matches.size());
 
-            for (Message message : messages) {
-                try {
-                    logger.debug("Processing message #{}", message.getMessageNumber());
-                    processMessage(account, message);
-                    // Mark as read after processing
-                    message.setFlag(Flags.Flag.SEEN, true);
-                    logger.debug("✓ Message #{} processed and marked as read", message.getMessageNumber());
-                } catch (Exception e) {
-                    logger.error("✗ Error processing message #{}: {}", message.getMessageNumber(), e.getMessage(), e);
+        int processed = 0;
+        try {
+            Set<Message> handled = ingestMessages(account, pending.stream().filter(matches::contains).toList());
+            for (Message message : pending) {
+                long uid = uidFolder.getUID(message);
+                // Non-matching messages are done without ever downloading them
+                boolean done = !matches.contains(message) || handled.contains(message);
+                if (done) {
+                    sync.failures.remove(uid);
+                    if (matches.contains(message)) {
+                        processed++;
+                    }
+                } else if (sync.failures.merge(uid, 1, Integer::sum) >= maxMessageAttempts) {
+                    // Stop fetching it (and everything above it) again every cycle; it stays unread
+                    logger.error("✗ Giving up on message UID {} for {} after {} failed attempts",
+                        uid, account.getEmailAddress(), maxMessageAttempts);
+                    sync.failures.remove(uid);
+                    done = true;
+                }
+                if (done) {
+                    long skipped = state.markProcessed(uid);
+                    if (skipped > 0) {
+                        logger.warn("Gave up on {} unprocessed message(s) below UID {} for {}",
+                            skipped, state.getLastUid(), account.getEmailAddress());
+                    }
                 }
             }
+        } finally {
+            mailboxSyncService.saveState(state);
+        }
+        return processed;
+    }
 
-            inbox.close(false);
-            logger.debug("INBOX closed");
-        } catch (AuthenticationFailedException e) {
-            logger.error("✗ Authentication failed for {}", account.getEmailAddress());
-            logger.error("This could be due to:");
-            logger.error("  - Incorrect password");
-            logger.error("  - 2FA enabled without app-specific password");
-            logger.error("  - IMAP access not enabled");
-            logger.error("  - Account security settings blocking access");
-            throw e;
-        } catch (MessagingException e) {
-            logger.error("✗ Messaging error for {}: {}", account.getEmailAddress(), e.getMessage(), e);
-            throw e;
+    /**
+     * Search the candidates on the server for messages whose subject contains the
+     * filter (and that also match extraTerm), then bulk-fetch ENVELOPE, FLAGS, UID,
+     * BODYSTRUCTURE and Message-ID for the matches in one round trip so readRequest doesn't
+     * fetch them one at a time. A null candidates array searches the whole folder.
+     */
+    private Message[] searchMatching(Folder inbox, Message[] candidates, SearchTerm extraTerm) throws MessagingException {
+        if (candidates != null && candidates.length == 0) {
+            return candidates;
+        }
+
+        SearchTerm term = new AndTerm(new SubjectTerm(subjectFilter), extraTerm);
+        Message[] matches = candidates == null ? inbox.search(term) : inbox.search(term, candidates);
+
+        if (matches.length > 0) {
+            FetchProfile envelopeProfile = new FetchProfile();
+            envelopeProfile.add(FetchProfile.Item.ENVELOPE);
+            envelopeProfile.add(FetchProfile.Item.FLAGS);
+            envelopeProfile.add(UIDFolder.FetchProfileItem.UID);
+            // BODYSTRUCTURE, so the text part can be picked without downloading the others
+            envelopeProfile.add(FetchProfile.Item.CONTENT_INFO);
+            envelopeProfile.add("Message-ID");
+            inbox.fetch(matches, envelopeProfile);
+        }
+        return matches;
+    }
+
+    /**
+     * There is no usable watermark - the folder was never synced, or the server
+     * renumbered it (UIDVALIDITY changed). Pick up pending requests the old way,
+     * by looking at unread messages once, and start the watermark at the current
+     * end of the folder. Requests that fail here stay below the watermark and are
+     * retried by later syncs like any other failure.
+     */
+    private int resyncBaseline(EmailAccount account, Folder inbox, UIDFolder uidFolder,
+                               MailboxSyncState state, long uidValidity, FolderSync sync) throws MessagingException {
+        long uidNext = uidFolder.getUIDNext();
+        if (uidNext <= 0) {
+            // Server didn't report UIDNEXT; derive it from the newest message
+            int count = inbox.getMessageCount();
+            uidNext = count > 0 ? uidFolder.getUID(inbox.getMessage(count)) + 1 : 1;
+        }
+
+        logger.info("Initializing UID watermark for {} (UIDVALIDITY {}, UIDNEXT {})",
+            account.getEmailAddress(), uidValidity, uidNext);
+        state.reset(uidValidity, uidNext - 1);
+
+        Message[] unread = searchMatching(inbox, null, new FlagTerm(new Flags(Flags.Flag.SEEN), false));
+        logger.info("Found {} unread matching messages for account: {}", unread.length, account.getEmailAddress());
+
+        try {
+            Set<Message> handled = ingestMessages(account, List.of(unread));
+            List<Long> failed = new ArrayList<>();
+            for (Message message : unread) {
+                long uid = uidFolder.getUID(message);
+                // Failures further back than the bitmap reaches can't be held open
+                if (!handled.contains(message) && uid < uidNext && uidNext - uid <= MailboxSyncState.MAX_TRACKED_GAP) {
+                    failed.add(uid);
+                }
+            }
+            if (!failed.isEmpty()) {
+                state.reset(uidValidity, Collections.min(failed) - 1);
+                state.markProcessedExcept(uidNext - 1, failed);
+                failed.forEach(uid -> sync.failures.merge(uid, 1, Integer::sum));
+                logger.warn("{} unread request(s) for {} failed during the baseline and will be retried",
+                    failed.size(), account.getEmailAddress());
+            }
+            return handled.size();
         } finally {
-            if (store != null && store.isConnected()) {
-                store.close();
-                logger.debug("Store connection closed");
+            mailboxSyncService.saveState(state);
+        }
+    }
+
+    /**
+     * Ingest the messages a chunk at a time, so a large backfill is never all
+     * downloaded at once and what was already stored is marked read as it goes
+     * @return the messages that were handled
+     */
+    private Set<Message> ingestMessages(EmailAccount account, List<Message> messages) {
+        Set<Message> handled = new HashSet<>();
+        int chunkSize = Math.max(1, ingestChunkSize);
+        for (int from = 0; from < messages.size(); from += chunkSize) {
+            handled.addAll(ingestChunk(account, messages.subList(from, Math.min(from + chunkSize, messages.size()))));
+        }
+        return handled;
+    }
+
+    /**
+     * Download and parse the messages, store the AI requests among them in one
+     * batch, and mark everything that was handled as read. Requests too large to
+     * read are handled too, but left unread so the sender's mailbox still shows
+     * them. Failures are logged so one bad message doesn't stop the rest.
+     * @return the messages that were handled
+     */
+    private Set<Message> ingestChunk(EmailAccount account, List<Message> messages) {
+        Set<Message> handled = new HashSet<>();
+        Set<Message> oversized = new HashSet<>();
+        Map<Message, IncomingEmail> requests = new LinkedHashMap<>();
+        for (Message message : messages) {
+            try {
+                logger.debug("Processing message #{}", message.getMessageNumber());
+                if (!isRequest(message)) {
+                    handled.add(message);
+                    continue;
+                }
+                Optional<IncomingEmail> request = readRequest(message);
+                if (request.isPresent()) {
+                    requests.put(message, request.get());
+                } else {
+                    oversizedRequests.increment();
+                    oversized.add(message);
+                }
+            } catch (Exception e) {
+                logger.error("✗ Error processing message #{}: {}", message.getMessageNumber(), e.getMessage(), e);
             }
         }
+
+        if (!requests.isEmpty()) {
+            // Generation and sending happen on the job workers, off the IMAP connection
+            List<IncomingEmail> failed = emailJobService.ingestAll(account, List.copyOf(requests.values()));
+            requests.forEach((message, email) -> {
+                if (!failed.contains(email)) {
+                    handled.add(message);
+                }
+            });
+        }
+
+        handled.removeIf(message -> !markRead(message));
+        handled.addAll(oversized);
+        return handled;
     }
 
-    private void processMessage(EmailAccount account, Message message) throws MessagingException, IOException {
+    private boolean markRead(Message message) {
+        try {
+            message.setFlag(Flags.Flag.SEEN, true);
+            logger.debug("✓ Message #{} processed and marked as read", message.getMessageNumber());
+            return true;
+        } catch (MessagingException e) {
+            logger.error("✗ Error marking message #{} as read: {}", message.getMessageNumber(), e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private boolean isRequest(Message message) throws MessagingException {
         String subject = message.getSubject();
         logger.debug("Message subject: '{}'", subject);
         logger.debug("Required filter: '{}'", subjectFilter);
@@ -154,9 +505,17 @@ public class EmailReceiverService {
         // Check if subject starts with the filter
         if (subject == null || !subject.startsWith(subjectFilter)) {
             logger.debug("⊗ Skipping message - subject does not start with filter '{}': {}", subjectFilter, subject);
-            return;
+            return false;
         }
+        return true;
+    }
 
+    /**
+     * Read an AI request out of a message that passed {@link #isRequest}
+     * @return empty if its text is over the size limit
+     */
+    private Optional<IncomingEmail> readRequest(Message message) throws MessagingException, IOException {
+        String subject = message.getSubject();
         logger.info("✓ Message matches filter! Processing AI request...");
 
         String from = message.getFrom()[0].toString();
@@ -164,40 +523,27 @@ public class EmailReceiverService {
         String senderEmail = extractEmail(from);
         logger.debug("From: {} -> Extracted email: {}", from, senderEmail);
 
-        String content = getTextFromMessage(message);
-        logger.debug("Message content length: {} characters", content.length());
-        logger.debug("Content preview: {}", content.length() > 100 ? content.substring(0, 100) + "..." : content);
-
         String messageId = message.getHeader("Message-ID") != null ? message.getHeader("Message-ID")[0] : null;
         logger.debug("Message-ID: {}", messageId);
 
+        Optional<BodyBuffer> body = mimeTextExtractor.extractText(message);
+        if (body.isEmpty()) {
+            logger.warn("⊗ Leaving message from {} unread - body is too large", senderEmail);
+            return Optional.empty();
+        }
+        logger.debug("Message body: {} bytes", body.get().size());
+
         logger.info("➤ Processing AI request from {} with subject: {}", senderEmail, subject);
+        return Optional.of(new IncomingEmail(senderEmail, subject, body.get(), messageId));
+    }
 
-        try {
-            // Get or create conversation
-            logger.debug("Getting or creating conversation with {}", senderEmail);
-            Conversation conversation = conversationService.getOrCreateConversation(account, senderEmail);
-            logger.debug("✓ Conversation ID: {}", conversation.getId());
-
-            // Add user message to conversation
-            logger.debug("Adding user message to conversation");
-            conversationService.addUserMessage(conversation, content, subject, messageId);
-            logger.debug("✓ User message saved");
-
-            // Generate AI response
-            logger.info("Generating AI response using Ollama...");
-            String aiResponse = conversationService.generateAIResponse(conversation, content);
-            logger.info("✓ AI response generated ({} characters)", aiResponse.length());
-            logger.debug("AI response preview: {}", aiResponse.length() > 100 ? aiResponse.substring(0, 100) + "..." : aiResponse);
-
-            // Send reply
-            logger.info("Sending reply email to {}", senderEmail);
-            emailSenderService.sendReply(account, senderEmail, subject, aiResponse);
-            logger.info("✓ AI response sent successfully to {}", senderEmail);
-        } catch (Exception e) {
-            logger.error("✗ Failed to process message and send reply", e);
-            throw e;
-        }
+    /**
+     * Serializes syncs of one folder, and counts failed attempts per UID that is
+     * still unprocessed. Only touched while holding the lock.
+     */
+    private static final class FolderSync {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Long, Integer> failures = new HashMap<>();
     }
 
     private String extractEmail(String fromAddress) {
@@ -209,35 +555,4 @@ public class EmailReceiverService {
         }
         return fromAddress;
     }
-
-    private String getTextFromMessage(Message message) throws MessagingException, IOException {
-        String result = "";
-        if (message.isMimeType("text/plain")) {
-            result = message.getContent().toString();
-        } else if (message.isMimeType("text/html")) {
-            result = message.getContent().toString();
-        } else if (message.isMimeType("multipart/*")) {
-            MimeMultipart mimeMultipart = (MimeMultipart) message.getContent();
-            result = getTextFromMimeMultipart(mimeMultipart);
-        }
-        return result;
-    }
-
-    private String getTextFromMimeMultipart(MimeMultipart mimeMultipart) throws MessagingException, IOException {
-        StringBuilder result = new StringBuilder();
-        int count = mimeMultipart.getCount();
-        for (int i = 0; i < count; i++) {
-            BodyPart bodyPart = mimeMultipart.getBodyPart(i);
-            if (bodyPart.isMimeType("text/plain")) {
-                result.append(bodyPart.getContent());
-                break; // Prefer plain text
-            } else if (bodyPart.isMimeType("text/html")) {
-                String html = (String) bodyPart.getContent();
-                result.append(html);
-            } else if (bodyPart.getContent() instanceof MimeMultipart) {
-                result.append(getTextFromMimeMultipart((MimeMultipart) bodyPart.getContent()));
-            }
-        }
-        return result.toString();
-    }
 }
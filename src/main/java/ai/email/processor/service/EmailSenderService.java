@@ -1,7 +1,7 @@
 package ai.email.processor.service;
 
 import ai.email.processor.entity.EmailAccount;
-import ai.email.processor.oauth2.OAuth2Authenticator;
+import ai.email.processor.mail.SmtpTransportPool;
 import jakarta.mail.*;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
@@ -9,81 +9,35 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.util.Properties;
-
 @Service
 public class EmailSenderService {
 
     private static final Logger logger = LoggerFactory.getLogger(EmailSenderService.class);
-    private final OAuth2Authenticator oauth2Authenticator;
+    private final SmtpTransportPool smtpTransportPool;
 
-    public EmailSenderService(OAuth2Authenticator oauth2Authenticator) {
-        this.oauth2Authenticator = oauth2Authenticator;
+    public EmailSenderService(SmtpTransportPool smtpTransportPool) {
+        this.smtpTransportPool = smtpTransportPool;
     }
 
     public void sendEmail(EmailAccount account, String to, String subject, String body) {
         logger.debug("Preparing to send email from {} to {}", account.getEmailAddress(), to);
-        logger.debug("SMTP Settings - Host: {}, Port: {}, SSL: {}, AuthType: {}",
-            account.getSmtpHost(), account.getSmtpPort(), account.isUseSSL(), account.getAuthType());
         logger.debug("Subject: {}", subject);
         logger.debug("Body length: {} characters", body.length());
 
         try {
-            Transport transport = null;
-            Session session;
-
-            if (account.isOAuth2()) {
-                // OAuth2 authentication
-                logger.info("Using OAuth2 authentication for SMTP: {}", account.getEmailAddress());
-                transport = oauth2Authenticator.connectSmtp(account);
-                session = oauth2Authenticator.createSmtpSession(account);
-            } else {
-                // Basic authentication
-                logger.info("Using basic authentication for SMTP: {}", account.getEmailAddress());
-                Properties props = new Properties();
-                props.put("mail.smtp.auth", "true");
-                props.put("mail.smtp.host", account.getSmtpHost());
-                props.put("mail.smtp.port", account.getSmtpPort());
-                props.put("mail.debug", "false");
-
-                // Port 587 uses STARTTLS, Port 465 uses SSL
-                if (account.getSmtpPort() == 587) {
-                    props.put("mail.smtp.starttls.enable", "true");
-                    props.put("mail.smtp.starttls.required", "true");
-                    props.put("mail.smtp.ssl.protocols", "TLSv1.2 TLSv1.3");
-                } else if (account.getSmtpPort() == 465 || account.isUseSSL()) {
-                    props.put("mail.smtp.ssl.enable", "true");
-                    props.put("mail.smtp.ssl.trust", "*");
-                    props.put("mail.smtp.ssl.protocols", "TLSv1.2 TLSv1.3");
-                } else {
-                    props.put("mail.smtp.starttls.enable", "true");
-                }
-
-                logger.debug("Creating SMTP session with basic authentication");
-                session = Session.getInstance(props, new Authenticator() {
-                    @Override
-                    protected PasswordAuthentication getPasswordAuthentication() {
-                        return new PasswordAuthentication(account.getUsername(), account.getPassword());
-                    }
-                });
-            }
+            // Reuse the account's pooled SMTP connection instead of a fresh handshake per email
+            smtpTransportPool.withTransport(account, (session, transport) -> {
+                logger.debug("Building email message");
+                Message message = new MimeMessage(session);
+                message.setFrom(new InternetAddress(account.getEmailAddress()));
+                message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(to));
+                message.setSubject(subject);
+                message.setText(body);
 
-            logger.debug("Building email message");
-            Message message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(account.getEmailAddress()));
-            message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(to));
-            message.setSubject(subject);
-            message.setText(body);
-
-            logger.debug("Sending email via SMTP...");
-            if (account.isOAuth2()) {
-                // For OAuth2, we already have a connected transport
+                logger.debug("Sending email via SMTP...");
                 transport.sendMessage(message, message.getAllRecipients());
-                transport.close();
-            } else {
-                // For basic auth, use Transport.send
-                Transport.send(message);
-            }
+                return null;
+            });
 
             logger.info("✓ Email sent successfully from {} to {}", account.getEmailAddress(), to);
         } catch (AuthenticationFailedException e) {
@@ -100,8 +54,12 @@ public class EmailSenderService {
     }
 
     public void sendReply(EmailAccount account, String to, String originalSubject, String body) {
-        String replySubject = originalSubject.startsWith("Re:") ? originalSubject : "Re: " + originalSubject;
+        String replySubject = replySubject(originalSubject);
         logger.info("Sending reply email - Original: '{}' -> Reply: '{}'", originalSubject, replySubject);
         sendEmail(account, to, replySubject, body);
     }
+
+    public static String replySubject(String originalSubject) {
+        return originalSubject.startsWith("Re:") ? originalSubject : "Re: " + originalSubject;
+    }
 }
@@ -0,0 +1,258 @@
+package ai.email.processor.service;
+
+import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.mail.ImapStorePool;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.*;
+import jakarta.mail.event.MessageCountAdapter;
+import jakarta.mail.event.MessageCountEvent;
+import org.eclipse.angus.mail.imap.IMAPFolder;
+import org.eclipse.angus.mail.imap.IMAPStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Push-based ingestion using IMAP IDLE.
+ * Keeps one long-lived connection per active account and hands new messages to
+ * EmailReceiverService as soon as the server announces them, instead of waiting
+ * for the next scheduled poll.
+ */
+@Service
+public class ImapIdleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImapIdleService.class);
+
+    public static final String IDLE_MODE = "idle";
+
+    private final EmailAccountService emailAccountService;
+    private final EmailReceiverService emailReceiverService;
+    private final ImapStorePool imapStorePool;
+
+    @Value("${ai.email.chat.ingestion-mode:poll}")
+    private String ingestionMode;
+
+    @Value("${ai.email.chat.idle.keepalive:25m}")
+    private Duration keepaliveInterval;
+
+    @Value("${ai.email.chat.idle.reconnect-delay:30s}")
+    private Duration reconnectDelay;
+
+    @Value("${ai.email.chat.poll-rate:60000}")
+    private long pollRateMillis;
+
+    private final Map<Long, IdleWatcher> watchers = new ConcurrentHashMap<>();
+
+    public ImapIdleService(EmailAccountService emailAccountService,
+                           EmailReceiverService emailReceiverService,
+                           ImapStorePool imapStorePool) {
+        this.emailAccountService = emailAccountService;
+        this.emailReceiverService = emailReceiverService;
+        this.imapStorePool = imapStorePool;
+    }
+
+    public boolean isEnabled() {
+        return IDLE_MODE.equalsIgnoreCase(ingestionMode);
+    }
+
+    /**
+     * Start watchers for newly active accounts, and stop or restart watchers for
+     * accounts that were deactivated or deleted, or whose IMAP settings changed,
+     * since the last run
+     */
+    @Scheduled(fixedDelayString = "${ai.email.chat.poll-rate:60000}")
+    public void reconcileWatchers() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        List<EmailAccount> activeAccounts = emailAccountService.getActiveAccounts();
+        Map<Long, EmailAccount> activeById = activeAccounts.stream()
+            .collect(Collectors.toMap(EmailAccount::getId, account -> account));
+
+        watchers.entrySet().removeIf(entry -> {
+            EmailAccount current = activeById.get(entry.getKey());
+            if (current == null || !Objects.equals(connectionSettings(current), entry.getValue().accountVersion)) {
+                logger.info("Stopping IDLE watcher for {}", entry.getValue().account.getEmailAddress());
+                entry.getValue().stop();
+                return true;
+            }
+            return false;
+        });
+
+        for (EmailAccount account : activeAccounts) {
+            watchers.computeIfAbsent(account.getId(), id -> startWatcher(account));
+        }
+        logger.debug("{} IMAP IDLE watchers running", watchers.size());
+    }
+
+    @PreDestroy
+    public void stopAll() {
+        watchers.values().forEach(IdleWatcher::stop);
+        watchers.clear();
+    }
+
+    /**
+     * What the watcher's connection depends on. Other edits, and OAuth2 token
+     * refreshes, leave a running watcher alone.
+     */
+    private static String connectionSettings(EmailAccount account) {
+        return String.join("|", account.getImapHost(), String.valueOf(account.getImapPort()),
+            account.getUsername(), String.valueOf(account.isUseSSL()), account.getAuthType(),
+            String.valueOf(Objects.hashCode(account.getPassword())));
+    }
+
+    private IdleWatcher startWatcher(EmailAccount account) {
+        logger.info("Starting IDLE watcher for {}", account.getEmailAddress());
+        IdleWatcher watcher = new IdleWatcher(account);
+        // Platform threads: IDLE blocks on a socket read inside JavaMail's synchronized
+        // sections, which would pin the carrier of a virtual thread for the connection's lifetime
+        watcher.thread = Thread.ofPlatform()
+            .daemon()
+            .name("imap-idle-" + account.getId())
+            .start(watcher);
+        return watcher;
+    }
+
+    private final class IdleWatcher implements Runnable {
+
+        private final EmailAccount account;
+        private final String accountVersion;
+        private volatile boolean running = true;
+        private volatile Store store;
+        private volatile Thread thread;
+
+        private IdleWatcher(EmailAccount account) {
+            this.account = account;
+            this.accountVersion = connectionSettings(account);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    watch();
+                } catch (Exception e) {
+                    if (!running) {
+                        break;
+                    }
+                    logger.warn("✗ IDLE connection for {} failed: {} - reconnecting in {}s",
+                        account.getEmailAddress(), e.getMessage(), reconnectDelay.toSeconds());
+                } finally {
+                    closeStore();
+                }
+
+                if (running) {
+                    try {
+                        Thread.sleep(reconnectDelay.toMillis());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            logger.debug("IDLE watcher for {} exited", account.getEmailAddress());
+        }
+
+        private void watch() throws MessagingException, InterruptedException {
+            // IDLE needs a dedicated connection, so it doesn't borrow from the poll pool
+            store = imapStorePool.connectForIdle(account);
+            Folder folder = store.getFolder("INBOX");
+            if (!(folder instanceof IMAPFolder inbox)) {
+                throw new MessagingException("IMAP IDLE requires an IMAP folder, got " + folder.getClass().getName());
+            }
+
+            // New-message notifications arrive on the folder's event thread and go
+            // straight into the normal sync path
+            inbox.addMessageCountListener(new MessageCountAdapter() {
+                @Override
+                public void messagesAdded(MessageCountEvent event) {
+                    logger.info("IDLE: {} new message(s) for {}", event.getMessages().length, account.getEmailAddress());
+                    try {
+                        emailReceiverService.syncInbox(account, inbox);
+                    } catch (MessagingException e) {
+                        logger.error("✗ IDLE sync failed for {}: {}", account.getEmailAddress(), e.getMessage(), e);
+                    }
+                }
+            });
+            inbox.open(Folder.READ_WRITE);
+
+            // Catch up on anything that arrived while no connection was listening
+            int caughtUp = emailReceiverService.syncInbox(account, inbox);
+            if (caughtUp > 0) {
+                logger.info("IDLE: caught up on {} message(s) for {}", caughtUp, account.getEmailAddress());
+            }
+
+            boolean idleSupported = store instanceof IMAPStore imapStore && imapStore.hasCapability("IDLE");
+            if (!idleSupported) {
+                logger.warn("Server {} does not support IDLE - checking {} on the open connection every {} ms",
+                    account.getImapHost(), account.getEmailAddress(), pollRateMillis);
+                while (running && inbox.isOpen()) {
+                    Thread.sleep(pollRateMillis);
+                    // Issues a NOOP, which makes the server report new messages to the listener
+                    inbox.getMessageCount();
+                }
+                return;
+            }
+
+            // Servers drop IDLE after ~30 minutes of silence; a periodic NOOP interrupts
+            // the current IDLE and the loop below re-enters it. Each connection has its own
+            // keepalive thread, so a NOOP stuck on one dead socket delays no other account.
+            Thread keepalive = Thread.ofPlatform()
+                .daemon()
+                .name("imap-idle-keepalive-" + account.getId())
+                .start(() -> keepAlive(inbox));
+
+            try {
+                logger.info("✓ IDLE watcher connected for {}", account.getEmailAddress());
+                while (running && inbox.isOpen()) {
+                    inbox.idle();
+                }
+            } finally {
+                keepalive.interrupt();
+            }
+        }
+
+        private void keepAlive(IMAPFolder inbox) {
+            while (running && inbox.isOpen()) {
+                try {
+                    Thread.sleep(keepaliveInterval.toMillis());
+                    inbox.getMessageCount();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (MessagingException | IllegalStateException e) {
+                    logger.debug("IDLE keepalive failed for {}: {}", account.getEmailAddress(), e.getMessage());
+                }
+            }
+        }
+
+        private void stop() {
+            running = false;
+            // Closing the store aborts a blocked IDLE
+            closeStore();
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        private void closeStore() {
+            Store current = store;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (MessagingException e) {
+                    logger.debug("Error closing IDLE store for {}: {}", account.getEmailAddress(), e.getMessage());
+                }
+            }
+        }
+    }
+}
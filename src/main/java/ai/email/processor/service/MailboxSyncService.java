@@ -0,0 +1,31 @@
+package ai.email.processor.service;
+
+import ai.email.processor.entity.MailboxSyncState;
+import ai.email.processor.repository.MailboxSyncStateRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@Transactional
+public class MailboxSyncService {
+
+    private final MailboxSyncStateRepository syncStateRepository;
+
+    public MailboxSyncService(MailboxSyncStateRepository syncStateRepository) {
+        this.syncStateRepository = syncStateRepository;
+    }
+
+    /**
+     * Load the sync state for a folder, or a new uninitialized state if the folder
+     * has never been synced
+     */
+    @Transactional(readOnly = true)
+    public MailboxSyncState getState(Long accountId, String folderName) {
+        return syncStateRepository.findByEmailAccountIdAndFolderName(accountId, folderName)
+            .orElseGet(() -> new MailboxSyncState(accountId, folderName));
+    }
+
+    public MailboxSyncState saveState(MailboxSyncState state) {
+        return syncStateRepository.save(state);
+    }
+}
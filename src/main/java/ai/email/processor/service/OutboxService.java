@@ -0,0 +1,172 @@
+package ai.email.processor.service;
+
+import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.entity.EmailJob.JobStatus;
+import ai.email.processor.entity.OutboundEmail;
+import ai.email.processor.entity.OutboundEmail.OutboundStatus;
+import ai.email.processor.repository.EmailJobRepository;
+import ai.email.processor.repository.OutboundEmailRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox for outgoing replies.
+ * Replies are stored alongside the assistant message that produced them and
+ * drained in the background in batches grouped by account, so each account's
+ * emails go out back-to-back over one pooled SMTP connection.
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final EmailJobRepository jobRepository;
+    private final EmailSenderService emailSenderService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${ai.email.chat.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${ai.email.chat.outbox.parallel-accounts:4}")
+    private int parallelAccounts;
+
+    @Value("${ai.email.chat.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${ai.email.chat.outbox.retry-backoff:30s}")
+    private Duration retryBackoff;
+
+    private ExecutorService senders;
+
+    public OutboxService(OutboundEmailRepository outboundEmailRepository,
+                         EmailJobRepository jobRepository,
+                         EmailSenderService emailSenderService,
+                         PlatformTransactionManager transactionManager) {
+        this.outboundEmailRepository = outboundEmailRepository;
+        this.jobRepository = jobRepository;
+        this.emailSenderService = emailSenderService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void startSenders() {
+        // Platform threads: SMTP writes happen inside JavaMail's synchronized methods
+        senders = Executors.newFixedThreadPool(Math.max(1, parallelAccounts),
+            Thread.ofPlatform().daemon().name("outbox-send-", 0).factory());
+    }
+
+    @PreDestroy
+    void stopSenders() {
+        senders.shutdownNow();
+    }
+
+    /**
+     * Queue a reply to be sent. Joins the caller's transaction, so the reply is
+     * only queued if the rest of that transaction commits.
+     */
+    @Transactional
+    public OutboundEmail enqueueReply(EmailAccount account, Long jobId, String to, String originalSubject, String body) {
+        OutboundEmail email = outboundEmailRepository.save(
+            new OutboundEmail(account, jobId, to, EmailSenderService.replySubject(originalSubject), body));
+        logger.debug("✓ Reply to {} queued in outbox (ID: {})", to, email.getId());
+        return email;
+    }
+
+    /**
+     * Send the next batch of due emails, one sender per account
+     */
+    @Scheduled(fixedDelayString = "${ai.email.chat.outbox.dispatch-interval:2000}")
+    public void dispatch() {
+        List<OutboundEmail> batch = outboundEmailRepository.findDue(
+            OutboundStatus.PENDING, LocalDateTime.now(), PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<OutboundEmail>> byAccount = batch.stream()
+            .collect(Collectors.groupingBy(email -> email.getEmailAccount().getId(), LinkedHashMap::new, Collectors.toList()));
+        logger.info("Outbox: sending {} email(s) for {} account(s)", batch.size(), byAccount.size());
+
+        List<Callable<Void>> tasks = byAccount.values().stream()
+            .<Callable<Void>>map(emails -> () -> {
+                emails.forEach(this::send);
+                return null;
+            })
+            .toList();
+        try {
+            senders.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(OutboundEmail email) {
+        try {
+            emailSenderService.sendEmail(email.getEmailAccount(), email.getRecipient(), email.getSubject(), email.getBody());
+        } catch (Exception e) {
+            recordFailure(email.getId(), e);
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> outboundEmailRepository.findById(email.getId()).ifPresent(sent -> {
+            sent.setStatus(OutboundStatus.SENT);
+            sent.setSentAt(LocalDateTime.now());
+            if (sent.getJobId() != null) {
+                jobRepository.transition(sent.getJobId(), JobStatus.SENDING, JobStatus.DONE, LocalDateTime.now());
+            }
+        }));
+    }
+
+    /**
+     * Retry later with exponential backoff, or mark the email (and its job) FAILED
+     * once it has used up its attempts
+     */
+    private void recordFailure(Long emailId, Exception error) {
+        logger.error("✗ Outbox email {} failed: {}", emailId, error.getMessage());
+        String message = truncate(error.getMessage(), 1024);
+        transactionTemplate.executeWithoutResult(status -> outboundEmailRepository.findById(emailId).ifPresent(email -> {
+            email.setAttempts(email.getAttempts() + 1);
+            email.setLastError(message);
+            if (email.getAttempts() >= maxAttempts) {
+                email.setStatus(OutboundStatus.FAILED);
+                logger.error("✗ Outbox email {} to {} gave up after {} attempts", emailId, email.getRecipient(), email.getAttempts());
+                if (email.getJobId() != null) {
+                    jobRepository.findById(email.getJobId()).ifPresent(job -> {
+                        job.setStatus(JobStatus.FAILED);
+                        job.setLastError(message);
+                    });
+                }
+            } else {
+                long backoffMillis = retryBackoff.toMillis() << Math.min(email.getAttempts() - 1, 10);
+                email.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(backoffMillis)));
+            }
+        }));
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength);
+    }
+}
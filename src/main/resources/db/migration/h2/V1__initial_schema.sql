@@ -0,0 +1,96 @@
+-- Schema previously generated by Hibernate (ddl-auto: update). Statements are
+-- guarded with IF NOT EXISTS so databases created that way are baselined in place.
+
+CREATE TABLE IF NOT EXISTS email_accounts (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email_address    VARCHAR(255)  NOT NULL,
+    display_name     VARCHAR(255)  NOT NULL,
+    imap_host        VARCHAR(255)  NOT NULL,
+    imap_port        INTEGER       NOT NULL,
+    smtp_host        VARCHAR(255)  NOT NULL,
+    smtp_port        INTEGER       NOT NULL,
+    username         VARCHAR(255)  NOT NULL,
+    password         VARCHAR(255),
+    auth_type        VARCHAR(255)  NOT NULL,
+    provider         VARCHAR(255),
+    access_token     VARCHAR(2048),
+    refresh_token    VARCHAR(2048),
+    token_expires_at TIMESTAMP(6),
+    usessl           BOOLEAN       NOT NULL,
+    active           BOOLEAN       NOT NULL,
+    created_at       TIMESTAMP(6)  NOT NULL,
+    updated_at       TIMESTAMP(6)  NOT NULL,
+    CONSTRAINT uk_email_accounts_email_address UNIQUE (email_address)
+);
+
+CREATE TABLE IF NOT EXISTS conversations (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email_account_id  BIGINT        NOT NULL,
+    participant_email VARCHAR(255)  NOT NULL,
+    created_at        TIMESTAMP(6)  NOT NULL,
+    last_message_at   TIMESTAMP(6)  NOT NULL,
+    CONSTRAINT uk_conversations_account_participant UNIQUE (email_account_id, participant_email),
+    CONSTRAINT fk_conversations_email_account FOREIGN KEY (email_account_id) REFERENCES email_accounts (id)
+);
+
+-- H2 treats TEXT as CLOB; the entities' String columns validate against VARCHAR
+CREATE TABLE IF NOT EXISTS messages (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    conversation_id  BIGINT                      NOT NULL,
+    content          VARCHAR                     NOT NULL,
+    role             ENUM ('USER', 'ASSISTANT')  NOT NULL,
+    created_at       TIMESTAMP(6)                NOT NULL,
+    email_subject    VARCHAR(255),
+    email_message_id VARCHAR(255),
+    CONSTRAINT fk_messages_conversation FOREIGN KEY (conversation_id) REFERENCES conversations (id)
+);
+ALTER TABLE messages ALTER COLUMN content SET DATA TYPE VARCHAR;
+
+CREATE TABLE IF NOT EXISTS email_jobs (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email_account_id BIGINT         NOT NULL,
+    conversation_id  BIGINT         NOT NULL,
+    sender_email     VARCHAR(255)   NOT NULL,
+    subject          VARCHAR(255),
+    content          VARCHAR        NOT NULL,
+    email_message_id VARCHAR(255),
+    response         VARCHAR,
+    status           ENUM ('INGESTED', 'GENERATING', 'SENDING', 'DONE', 'FAILED') NOT NULL,
+    attempts         INTEGER        NOT NULL,
+    last_error       VARCHAR(1024),
+    next_attempt_at  TIMESTAMP(6)   NOT NULL,
+    created_at       TIMESTAMP(6)   NOT NULL,
+    updated_at       TIMESTAMP(6)   NOT NULL,
+    CONSTRAINT fk_email_jobs_email_account FOREIGN KEY (email_account_id) REFERENCES email_accounts (id),
+    CONSTRAINT fk_email_jobs_conversation FOREIGN KEY (conversation_id) REFERENCES conversations (id)
+);
+ALTER TABLE email_jobs ALTER COLUMN content SET DATA TYPE VARCHAR;
+ALTER TABLE email_jobs ALTER COLUMN response SET DATA TYPE VARCHAR;
+
+CREATE TABLE IF NOT EXISTS outbound_emails (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email_account_id BIGINT         NOT NULL,
+    job_id           BIGINT,
+    recipient        VARCHAR(255)   NOT NULL,
+    subject          VARCHAR(255)   NOT NULL,
+    body             VARCHAR        NOT NULL,
+    status           ENUM ('PENDING', 'SENT', 'FAILED') NOT NULL,
+    attempts         INTEGER        NOT NULL,
+    last_error       VARCHAR(1024),
+    next_attempt_at  TIMESTAMP(6)   NOT NULL,
+    created_at       TIMESTAMP(6)   NOT NULL,
+    sent_at          TIMESTAMP(6),
+    CONSTRAINT fk_outbound_emails_email_account FOREIGN KEY (email_account_id) REFERENCES email_accounts (id)
+);
+ALTER TABLE outbound_emails ALTER COLUMN body SET DATA TYPE VARCHAR;
+
+CREATE TABLE IF NOT EXISTS mailbox_sync_state (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email_account_id BIGINT          NOT NULL,
+    folder_name      VARCHAR(255)    NOT NULL,
+    uid_validity     BIGINT          NOT NULL,
+    last_uid         BIGINT          NOT NULL,
+    processed_uids   VARBINARY(8192),
+    updated_at       TIMESTAMP(6)    NOT NULL,
+    CONSTRAINT uk_mailbox_sync_state_account_folder UNIQUE (email_account_id, folder_name)
+);
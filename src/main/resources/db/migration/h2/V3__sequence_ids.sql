@@ -0,0 +1,15 @@
+-- Ids come from sequences handed out in blocks of 50 (allocationSize), so Hibernate
+-- knows a row's id before inserting it and can batch the inserts. Each sequence
+-- starts one block past the current maximum id.
+
+CREATE SEQUENCE IF NOT EXISTS email_accounts_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE email_accounts_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM email_accounts);
+
+CREATE SEQUENCE IF NOT EXISTS conversations_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE conversations_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM conversations);
+
+CREATE SEQUENCE IF NOT EXISTS messages_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE messages_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM messages);
+
+CREATE SEQUENCE IF NOT EXISTS email_jobs_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE email_jobs_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM email_jobs);
@@ -0,0 +1,87 @@
+-- Schema previously generated by Hibernate (ddl-auto: update). Statements are
+-- guarded with IF NOT EXISTS so databases created that way are baselined in place.
+
+CREATE TABLE IF NOT EXISTS email_accounts (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email_address    VARCHAR(255)  NOT NULL,
+    display_name     VARCHAR(255)  NOT NULL,
+    imap_host        VARCHAR(255)  NOT NULL,
+    imap_port        INTEGER       NOT NULL,
+    smtp_host        VARCHAR(255)  NOT NULL,
+    smtp_port        INTEGER       NOT NULL,
+    username         VARCHAR(255)  NOT NULL,
+    password         VARCHAR(255),
+    auth_type        VARCHAR(255)  NOT NULL,
+    provider         VARCHAR(255),
+    access_token     VARCHAR(2048),
+    refresh_token    VARCHAR(2048),
+    token_expires_at TIMESTAMP(6),
+    usessl           BOOLEAN       NOT NULL,
+    active           BOOLEAN       NOT NULL,
+    created_at       TIMESTAMP(6)  NOT NULL,
+    updated_at       TIMESTAMP(6)  NOT NULL,
+    CONSTRAINT uk_email_accounts_email_address UNIQUE (email_address)
+);
+
+CREATE TABLE IF NOT EXISTS conversations (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email_account_id  BIGINT        NOT NULL REFERENCES email_accounts (id),
+    participant_email VARCHAR(255)  NOT NULL,
+    created_at        TIMESTAMP(6)  NOT NULL,
+    last_message_at   TIMESTAMP(6)  NOT NULL,
+    CONSTRAINT uk_conversations_account_participant UNIQUE (email_account_id, participant_email)
+);
+
+CREATE TABLE IF NOT EXISTS messages (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    conversation_id  BIGINT        NOT NULL REFERENCES conversations (id),
+    content          TEXT          NOT NULL,
+    role             VARCHAR(255)  NOT NULL CHECK (role IN ('USER', 'ASSISTANT')),
+    created_at       TIMESTAMP(6)  NOT NULL,
+    email_subject    VARCHAR(255),
+    email_message_id VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS email_jobs (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email_account_id BIGINT         NOT NULL REFERENCES email_accounts (id),
+    conversation_id  BIGINT         NOT NULL REFERENCES conversations (id),
+    sender_email     VARCHAR(255)   NOT NULL,
+    subject          VARCHAR(255),
+    content          TEXT           NOT NULL,
+    email_message_id VARCHAR(255),
+    response         TEXT,
+    status           VARCHAR(255)   NOT NULL
+        CHECK (status IN ('INGESTED', 'GENERATING', 'SENDING', 'DONE', 'FAILED')),
+    attempts         INTEGER        NOT NULL,
+    last_error       VARCHAR(1024),
+    next_attempt_at  TIMESTAMP(6)   NOT NULL,
+    created_at       TIMESTAMP(6)   NOT NULL,
+    updated_at       TIMESTAMP(6)   NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS outbound_emails (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email_account_id BIGINT         NOT NULL REFERENCES email_accounts (id),
+    job_id           BIGINT,
+    recipient        VARCHAR(255)   NOT NULL,
+    subject          VARCHAR(255)   NOT NULL,
+    body             TEXT           NOT NULL,
+    status           VARCHAR(255)   NOT NULL CHECK (status IN ('PENDING', 'SENT', 'FAILED')),
+    attempts         INTEGER        NOT NULL,
+    last_error       VARCHAR(1024),
+    next_attempt_at  TIMESTAMP(6)   NOT NULL,
+    created_at       TIMESTAMP(6)   NOT NULL,
+    sent_at          TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS mailbox_sync_state (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email_account_id BIGINT        NOT NULL,
+    folder_name      VARCHAR(255)  NOT NULL,
+    uid_validity     BIGINT        NOT NULL,
+    last_uid         BIGINT        NOT NULL,
+    processed_uids   BYTEA,
+    updated_at       TIMESTAMP(6)  NOT NULL,
+    CONSTRAINT uk_mailbox_sync_state_account_folder UNIQUE (email_account_id, folder_name)
+);
@@ -0,0 +1,13 @@
+-- Duplicate check on ingest (existsByEmailMessageId); NULLs are allowed more than once
+CREATE UNIQUE INDEX IF NOT EXISTS uk_messages_email_message_id ON messages (email_message_id);
+
+-- Conversation history, oldest or newest first
+CREATE INDEX IF NOT EXISTS idx_messages_conversation_created ON messages (conversation_id, created_at, id);
+
+-- Conversation listing per account, most recently active first
+CREATE INDEX IF NOT EXISTS idx_conversations_account_last_message ON conversations (email_account_id, last_message_at, id);
+
+-- Job sweeper and outbox dispatcher
+CREATE INDEX IF NOT EXISTS idx_email_jobs_status_next_attempt ON email_jobs (status, next_attempt_at);
+CREATE INDEX IF NOT EXISTS idx_outbound_emails_status_next_attempt ON outbound_emails (status, next_attempt_at);
+CREATE INDEX IF NOT EXISTS idx_outbound_emails_job ON outbound_emails (job_id);
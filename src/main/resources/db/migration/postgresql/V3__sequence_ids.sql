@@ -0,0 +1,15 @@
+-- Ids come from sequences handed out in blocks of 50 (allocationSize), so Hibernate
+-- knows a row's id before inserting it and can batch the inserts. Each sequence
+-- starts one block past the current maximum id.
+
+CREATE SEQUENCE IF NOT EXISTS email_accounts_seq INCREMENT BY 50;
+SELECT setval('email_accounts_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM email_accounts), false);
+
+CREATE SEQUENCE IF NOT EXISTS conversations_seq INCREMENT BY 50;
+SELECT setval('conversations_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM conversations), false);
+
+CREATE SEQUENCE IF NOT EXISTS messages_seq INCREMENT BY 50;
+SELECT setval('messages_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM messages), false);
+
+CREATE SEQUENCE IF NOT EXISTS email_jobs_seq INCREMENT BY 50;
+SELECT setval('email_jobs_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM email_jobs), false);
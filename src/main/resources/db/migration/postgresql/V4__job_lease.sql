@@ -0,0 +1,4 @@
+-- A job in GENERATING belongs to the instance that claimed it until its lease runs
+-- out. The owner renews the lease while it works, so only jobs of an instance that
+-- died are taken back. Rows without a lease predate this column.
+ALTER TABLE email_jobs ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMP(6);
@@ -0,0 +1,60 @@
+package ai.email.processor.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The watermark has to move past UIDs the server never returns, or every sync
+ * fetches everything above the first hole again
+ */
+class MailboxSyncStateTest {
+
+    @Test
+    void watermarkPassesUidGaps() {
+        MailboxSyncState state = new MailboxSyncState(1L, "INBOX");
+        state.reset(7, 100);
+        List<Long> fetched = List.of(101L, 105L, 110L, 4000L);
+
+        state.markProcessedExcept(4000, fetched);
+        fetched.forEach(state::markProcessed);
+
+        assertThat(state.getLastUid()).isEqualTo(4000);
+        assertThat(state.getProcessedUids()).isNull();
+    }
+
+    @Test
+    void watermarkStopsBelowAnUnprocessedMessage() {
+        MailboxSyncState state = new MailboxSyncState(1L, "INBOX");
+        state.reset(7, 100);
+
+        state.markProcessedExcept(4000, List.of(101L, 105L, 110L, 4000L));
+        state.markProcessed(101);
+        state.markProcessed(110);
+        state.markProcessed(4000);
+
+        assertThat(state.getLastUid()).isEqualTo(104);
+        assertThat(state.isProcessed(105)).isFalse();
+        assertThat(state.isProcessed(3999)).isTrue();
+
+        state.markProcessed(105);
+        assertThat(state.getLastUid()).isEqualTo(4000);
+    }
+
+    @Test
+    void processedUidsAboveTheWatermarkStayProcessed() {
+        MailboxSyncState state = new MailboxSyncState(1L, "INBOX");
+        state.reset(7, 100);
+        state.markProcessed(103);
+
+        state.markProcessedExcept(103, List.of(101L, 103L));
+
+        assertThat(state.getLastUid()).isEqualTo(100);
+        assertThat(state.isProcessed(102)).isTrue();
+        assertThat(state.isProcessed(103)).isTrue();
+        state.markProcessed(101);
+        assertThat(state.getLastUid()).isEqualTo(103);
+    }
+}
@@ -0,0 +1,82 @@
+package ai.email.processor.llm;
+
+import ai.email.processor.entity.Conversation;
+import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.entity.Message;
+import ai.email.processor.llm.ConversationContextBuilder.ConversationContext;
+import ai.email.processor.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The message being answered is already stored when the context is built, and
+ * must only be charged to the budget once
+ */
+class ConversationContextBuilderTest {
+
+    // 240 characters = 64 estimated tokens, more than half the budget
+    private static final String QUESTION = "q".repeat(240);
+    // 40 characters = 14 estimated tokens each
+    private static final String TURN = "t".repeat(40);
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final ConversationContextBuilder builder = new ConversationContextBuilder(messageRepository);
+    private Conversation conversation;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(builder, "defaultBudget", 100);
+        ReflectionTestUtils.setField(builder, "modelBudgetsSpec", "");
+        ReflectionTestUtils.setField(builder, "accountBudgetsSpec", "");
+        ReflectionTestUtils.setField(builder, "model", "llama3.2");
+        builder.init();
+
+        EmailAccount account = new EmailAccount();
+        account.setId(1L);
+        conversation = new Conversation(account, "sender@example.com");
+        conversation.setId(1L);
+    }
+
+    @Test
+    void storedQuestionIsChargedOnce() {
+        // Newest first: the question, then two earlier turns that fit in the 36 tokens it leaves
+        givenHistory(new Message(QUESTION, Message.MessageRole.USER),
+            new Message(TURN, Message.MessageRole.ASSISTANT),
+            new Message(TURN, Message.MessageRole.USER));
+
+        ConversationContext context = builder.build(conversation, QUESTION);
+
+        assertThat(context.history()).hasSize(3);
+        assertThat(context.truncated()).isFalse();
+        assertThat(context.history().get(2).getContent()).isEqualTo(QUESTION);
+    }
+
+    @Test
+    void turnsBeyondTheBudgetAreDropped() {
+        givenHistory(new Message(QUESTION, Message.MessageRole.USER),
+            new Message(TURN, Message.MessageRole.ASSISTANT),
+            new Message(TURN, Message.MessageRole.USER),
+            new Message(TURN, Message.MessageRole.ASSISTANT));
+
+        ConversationContext context = builder.build(conversation, QUESTION);
+
+        assertThat(context.history()).hasSize(3);
+        assertThat(context.truncated()).isTrue();
+        assertThat(context.estimatedTokens()).isEqualTo(28);
+    }
+
+    private void givenHistory(Message... newestFirst) {
+        when(messageRepository.findByConversationOrderByCreatedAtDesc(eq(conversation), any(Pageable.class)))
+            .thenReturn(List.of(newestFirst));
+    }
+}
@@ -0,0 +1,97 @@
+package ai.email.processor.mail;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Quote, signature and HTML stripping on bodies shaped like the ones common mail
+ * clients send
+ */
+class MessageTextNormalizerTest {
+
+    @Test
+    void decodesEntities() {
+        String html = "<p>Fish &amp; chips &lt;3 &#39;n&#x27; &nbsp;more from AT&T &bogus;</p>";
+
+        assertThat(MessageTextNormalizer.normalize(html, true))
+            .isEqualTo("Fish & chips <3 'n' more from AT&T &bogus;");
+    }
+
+    @Test
+    void dropsNestedBlockquotes() {
+        String html = "<div>Answer please</div>"
+            + "<blockquote>Old<blockquote>Older</blockquote>still quoted</blockquote>"
+            + "<div>After</div>";
+
+        assertThat(MessageTextNormalizer.normalize(html, true)).isEqualTo("Answer please\nAfter");
+    }
+
+    @Test
+    void breaksLinesOnEveryBrForm() {
+        String html = "Line one<br/>Line two<br />Line three<BR><br>Paragraph";
+
+        assertThat(MessageTextNormalizer.htmlToText(html)).isEqualTo("Line one\nLine two\nLine three\n\nParagraph");
+    }
+
+    @Test
+    void cutsAtReplyHeaderWrappedOverTwoLines() {
+        String text = "Sure, Tuesday works.\n\n"
+            + "On Mon, 1 Jan 2024 at 10:00, Someone With A Long Name\n"
+            + "<someone@example.com> wrote:\n"
+            + "> Can we meet?\n";
+
+        assertThat(MessageTextNormalizer.normalize(text, false)).isEqualTo("Sure, Tuesday works.");
+    }
+
+    @Test
+    void cutsAtOutlookHeaderBlock() {
+        String text = "Thanks!\n\n"
+            + "From: Someone <someone@example.com>\n"
+            + "Sent: Monday, 1 January 2024 10:00\n"
+            + "To: me@example.com\n"
+            + "Subject: Hi\n\n"
+            + "Original text";
+
+        assertThat(MessageTextNormalizer.normalize(text, false)).isEqualTo("Thanks!");
+    }
+
+    @Test
+    void cutsAtOutlookUnderscoreRule() {
+        String text = "Thanks!\n________________________________\nFrom: Someone\nOriginal text";
+
+        assertThat(MessageTextNormalizer.normalize(text, false)).isEqualTo("Thanks!");
+    }
+
+    @Test
+    void keepsQuotesWhenNothingElseIsLeft() {
+        String text = "> only a quote\n>   second   line\n";
+
+        assertThat(MessageTextNormalizer.normalize(text, false)).isEqualTo("> only a quote\n> second line");
+    }
+
+    @Test
+    void keepsForwardedMessage() {
+        String text = "Can you summarise this?\n\n"
+            + "---------- Forwarded message ---------\n"
+            + "From: Someone <someone@example.com>\n"
+            + "Date: Mon, 1 Jan 2024 at 10:00\n"
+            + "Subject: Report\n"
+            + "To: me@example.com\n\n"
+            + "The quarterly numbers are in.\n";
+
+        assertThat(MessageTextNormalizer.normalize(text, false)).isEqualTo(text.strip());
+    }
+
+    @Test
+    void keepsAppleMailForwardedMessage() {
+        String text = "Summary please\n\n"
+            + "Begin forwarded message:\n\n"
+            + "From: Someone <someone@example.com>\n"
+            + "Date: 1 January 2024 at 10:00:00 GMT\n"
+            + "Subject: Report\n\n"
+            + "The quarterly numbers are in.";
+
+        assertThat(MessageTextNormalizer.normalize(text, false)).isEqualTo(text);
+    }
+}
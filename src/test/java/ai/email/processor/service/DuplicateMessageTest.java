@@ -0,0 +1,57 @@
+package ai.email.processor.service;
+
+import ai.email.processor.entity.Conversation;
+import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.repository.EmailAccountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A second message with a stored Message-ID is recognised as a duplicate from
+ * the violated constraint, as H2 reports it
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:duplicate-message;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false"
+})
+class DuplicateMessageTest {
+
+    @MockitoBean
+    private OllamaChatModel ollamaChatModel;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private EmailAccountRepository emailAccountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void repeatedMessageIdIsADuplicate() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Conversation conversation = transaction.execute(status -> {
+            EmailAccount account = new EmailAccount("dedup@example.com", "Dedup", "imap.example.com", 993,
+                "smtp.example.com", 587, "dedup", "secret");
+            account.setActive(false);
+            return conversationService.getOrCreateConversation(emailAccountRepository.save(account), "sender@example.com");
+        });
+        transaction.executeWithoutResult(status ->
+            conversationService.addUserMessage(conversation, "Question", "[AI_REQUEST] Question", "<once@example.com>"));
+
+        assertThatThrownBy(() -> transaction.executeWithoutResult(status ->
+                conversationService.addUserMessage(conversation, "Question", "[AI_REQUEST] Question", "<once@example.com>")))
+            .isInstanceOf(DataIntegrityViolationException.class)
+            .satisfies(e -> assertThat(ConversationService.isDuplicateMessage((DataIntegrityViolationException) e)).isTrue());
+    }
+}
@@ -0,0 +1,138 @@
+package ai.email.processor.service;
+
+import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.entity.EmailJob;
+import ai.email.processor.entity.EmailJob.JobStatus;
+import ai.email.processor.repository.EmailAccountRepository;
+import ai.email.processor.repository.EmailJobRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Flux;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Generations must not hold a pooled connection while the model streams.
+ * Eight ingested jobs are held inside the model call at the same time, against a
+ * two-connection pool whose checkout timeout is far shorter than that wait; the
+ * pool must have no active connections while they are all waiting on the model.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:generation-concurrency;DB_CLOSE_DELAY=-1",
+    "spring.jpa.show-sql=false",
+    "spring.datasource.hikari.maximum-pool-size=2",
+    "spring.datasource.hikari.connection-timeout=250",
+    "ai.email.chat.llm.max-in-flight=8",
+    "ai.email.chat.jobs.generation-workers=8",
+    // Keep the outbox from trying to reach the example SMTP host
+    "ai.email.chat.outbox.dispatch-interval=3600000"
+})
+class GenerationConcurrencyTest {
+
+    private static final int GENERATIONS = 8;
+    private static final List<String> CHUNKS = List.of("Thanks ", "for ", "your email.");
+
+    @MockitoBean
+    private OllamaChatModel ollamaChatModel;
+
+    @Autowired
+    private EmailJobService emailJobService;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private EmailAccountRepository emailAccountRepository;
+
+    @Autowired
+    private EmailJobRepository emailJobRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void concurrentGenerationsHoldNoConnectionDuringTheModelCall() throws Exception {
+        CountDownLatch streaming = new CountDownLatch(GENERATIONS);
+        CountDownLatch release = new CountDownLatch(1);
+        when(ollamaChatModel.stream(any(Prompt.class))).thenAnswer(invocation -> Flux.defer(() -> {
+                // Hold every generation inside the model call until all of them are there
+                streaming.countDown();
+                awaitQuietly(release);
+                return Flux.fromIterable(CHUNKS);
+            })
+            .map(text -> new ChatResponse(List.of(new Generation(new AssistantMessage(text))))));
+
+        EmailAccount account = new EmailAccount("assistant@example.com", "Assistant", "imap.example.com", 993,
+            "smtp.example.com", 587, "assistant", "secret");
+        account.setActive(false);
+        account = emailAccountRepository.save(account);
+
+        HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        List<Long> jobIds = new ArrayList<>();
+        try {
+            // Ingesting queues each job on the generation workers, as mail from the receiver does
+            for (int i = 0; i < GENERATIONS; i++) {
+                jobIds.add(emailJobService.ingest(account, "sender" + i + "@example.com", "[AI_REQUEST] Question " + i,
+                    "Question " + i, "<question-" + i + "@example.com>"));
+            }
+            // All generations are inside the model call at once, so they overlap in time...
+            assertThat(streaming.await(10, TimeUnit.SECONDS)).isTrue();
+            // ...and none of them keeps a connection for it. Scheduled jobs may borrow one
+            // briefly, so wait for the pool to drain rather than sampling it once.
+            assertThat(await(() -> pool.getActiveConnections() == 0, Duration.ofSeconds(5))).isTrue();
+        } finally {
+            release.countDown();
+        }
+
+        assertThat(await(() -> jobIds.stream().allMatch(this::isGenerated), Duration.ofSeconds(30))).isTrue();
+        for (Long jobId : jobIds) {
+            EmailJob job = emailJobRepository.findWithAssociationsById(jobId).orElseThrow();
+            assertThat(job.getResponse()).isEqualTo(String.join("", CHUNKS));
+            assertThat(conversationService.getMessageViews(job.getConversation().getId(), null, 10).items()).hasSize(2);
+        }
+    }
+
+    private boolean isGenerated(Long jobId) {
+        return emailJobRepository.findById(jobId)
+            .map(job -> job.getStatus() == JobStatus.SENDING)
+            .orElse(false);
+    }
+
+    private static boolean await(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
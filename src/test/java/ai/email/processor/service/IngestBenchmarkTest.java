@@ -0,0 +1,124 @@
+package ai.email.processor.service;
+
+import ai.email.processor.entity.EmailAccount;
+import ai.email.processor.mail.BodyBuffer;
+import ai.email.processor.model.IncomingEmail;
+import ai.email.processor.repository.EmailAccountRepository;
+import ai.email.processor.repository.EmailJobRepository;
+import ai.email.processor.repository.MessageRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ingestion throughput, one email per transaction versus the batched path used
+ * by mailbox syncs. Runs against in-memory H2 by default; point it at PostgreSQL with
+ *
+ * <pre>
+ * INGEST_BENCHMARK=true \
+ * INGEST_BENCHMARK_URL="jdbc:postgresql://localhost:5432/emailchat?reWriteBatchedInserts=true" \
+ * INGEST_BENCHMARK_USER=emailchat INGEST_BENCHMARK_PASSWORD=emailchat_password \
+ * ./gradlew test --tests IngestBenchmarkTest -i
+ * </pre>
+ */
+@EnabledIfEnvironmentVariable(named = "INGEST_BENCHMARK", matches = "true")
+@SpringBootTest(properties = {
+    "spring.datasource.url=${INGEST_BENCHMARK_URL:jdbc:h2:mem:ingest-benchmark;DB_CLOSE_DELAY=-1}",
+    "spring.datasource.username=${INGEST_BENCHMARK_USER:sa}",
+    "spring.datasource.password=${INGEST_BENCHMARK_PASSWORD:password}",
+    "spring.datasource.driver-class-name=",
+    "spring.jpa.show-sql=false",
+    "logging.level.ai.email.processor=INFO",
+    // Queued jobs park on the single worker instead of competing for the database
+    "ai.email.chat.jobs.generation-workers=1",
+    "ai.email.chat.llm.deadline=1h"
+})
+class IngestBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestBenchmarkTest.class);
+
+    private static final int EMAILS = 2000;
+    private static final int SENDERS = 20;
+    // Roughly what one busy mailbox sync hands over at once
+    private static final int BATCH_SIZE = 200;
+
+    @MockitoBean
+    private OllamaChatModel ollamaChatModel;
+
+    @Autowired
+    private EmailJobService emailJobService;
+
+    @Autowired
+    private EmailAccountRepository emailAccountRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private EmailJobRepository emailJobRepository;
+
+    @Test
+    void batchedIngestionOutpacesOneEmailPerTransaction() {
+        when(ollamaChatModel.stream(any(Prompt.class))).thenReturn(Flux.never());
+
+        EmailAccount account = new EmailAccount("benchmark-" + System.nanoTime() + "@example.com", "Benchmark",
+            "imap.example.com", 993, "smtp.example.com", 587, "benchmark", "secret");
+        account.setActive(false);
+        EmailAccount saved = emailAccountRepository.save(account);
+
+        long messagesBefore = messageRepository.count();
+        double single = measure("one per transaction", emails("single"), emails -> emails.forEach(email ->
+            emailJobService.ingest(saved, email.senderEmail(), email.subject(), email.body().text(), email.messageId())));
+        double batched = measure("batched", emails("batched"), emails -> {
+            for (int from = 0; from < emails.size(); from += BATCH_SIZE) {
+                List<IncomingEmail> batch = emails.subList(from, Math.min(from + BATCH_SIZE, emails.size()));
+                assertThat(emailJobService.ingestAll(saved, batch)).isEmpty();
+            }
+        });
+
+        logger.info("Batched ingestion is {}x one email per transaction", String.format("%.1f", batched / single));
+        assertThat(messageRepository.count() - messagesBefore).isEqualTo(2L * EMAILS);
+        assertThat(emailJobRepository.count()).isGreaterThanOrEqualTo(2L * EMAILS);
+    }
+
+    private interface IngestRun {
+        void ingest(List<IncomingEmail> emails);
+    }
+
+    /**
+     * @return rows written per second, counting the message and the job for each email
+     */
+    private double measure(String label, List<IncomingEmail> emails, IngestRun run) {
+        long startedAt = System.nanoTime();
+        run.ingest(emails);
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        double rowsPerSecond = 2 * emails.size() / seconds;
+        logger.info("{}: {} emails in {} s, {} rows/s", label, emails.size(),
+            String.format("%.2f", seconds), String.format("%.0f", rowsPerSecond));
+        return rowsPerSecond;
+    }
+
+    private static List<IncomingEmail> emails(String run) {
+        List<IncomingEmail> emails = new ArrayList<>(EMAILS);
+        for (int i = 0; i < EMAILS; i++) {
+            emails.add(new IncomingEmail("sender" + (i % SENDERS) + "@example.com", "[AI_REQUEST] Question " + i,
+                BodyBuffer.of("Question " + i + ": could you summarise where my order stands?"),
+                "<" + run + "-" + i + "-" + System.nanoTime() + "@example.com>"));
+        }
+        return emails;
+    }
+}